@@ -0,0 +1,22 @@
+package net.rubygrapefruit.docs.docbook;
+
+import net.rubygrapefruit.docs.parser.Parser;
+import net.rubygrapefruit.docs.parser.ParserProvider;
+
+public class DocbookParserProvider implements ParserProvider {
+    public String getName() {
+        return "DocBook";
+    }
+
+    public boolean canParse(String fileName) {
+        return fileName.endsWith(".xml");
+    }
+
+    public boolean isDefault() {
+        return false;
+    }
+
+    public Parser createParser() {
+        return new DocbookParser();
+    }
+}
@@ -4,14 +4,12 @@ import net.rubygrapefruit.docs.model.buildable.BuildableDocument;
 import net.rubygrapefruit.docs.model.buildable.BuildableParagraph;
 import net.rubygrapefruit.docs.parser.*;
 
-import java.io.Reader;
-
 /**
  * doc = element element = empty-element | element-with-content empty-element = '<' element-name '/>'
  * element-with-content = start-element (element | text | cdata)* end-element start-element = '<' element-name '>'
  * end-element = '</' element-name '>' text = (!reserved-char | entity)+ cdata = ??
  */
-public class HtmlParser extends Parser {
+public class HtmlParser extends CharStreamParser {
     private final Name name = new Name();
     private final Production<CharStream> whitespace = Productions.matchAtLeastOneOf(' ', '\t', '\r', '\n', '\f');
     private final Comment comment = new Comment();
@@ -19,12 +17,12 @@ public class HtmlParser extends Parser {
     private final StartTag startTag = new StartTag();
     private final EndTag endTag = new EndTag();
     private final TextProduction textProduction = new TextProduction();
+    private final Text text = new Text();
 
     @Override
-    protected void doParse(Reader input, String fileName, BuildableDocument document) throws Exception {
+    protected void doParse(CharStream input, String fileName, BuildableDocument document) throws Exception {
         LenientHtmlDocument documentProduction = new LenientHtmlDocument(document, fileName);
-        Buffer buffer = new Buffer(input);
-        buffer.consume(documentProduction);
+        input.consume(documentProduction);
     }
 
     private static class Token {
@@ -98,7 +96,8 @@ public class HtmlParser extends Parser {
 
     private abstract class ElementProduction implements Production<CharStream> {
         public void match(CharStream stream) {
-            Token token = stream.consume(startTag);
+            // Each element type tries the same start tag, so only lex it once
+            Token token = stream.consumeMemoized(startTag);
             if (token == null) {
                 return;
             }
@@ -187,9 +186,8 @@ public class HtmlParser extends Parser {
                 if (stream.consume(new ParagraphElement(document))) {
                     continue;
                 }
-                Token token = stream.consume(textProduction);
-                if (token != null) {
-                    document.addParagraph().append(token.value);
+                if (stream.consume(text)) {
+                    document.addParagraph().append(stream.getSlice());
                     continue;
                 }
                 break;
@@ -227,9 +225,8 @@ public class HtmlParser extends Parser {
                 if (stream.consume(comment)) {
                     continue;
                 }
-                Token value = stream.consume(textProduction);
-                if (value != null) {
-                    paragraph.append(value.value);
+                if (stream.consume(text)) {
+                    paragraph.append(stream.getSlice());
                     continue;
                 }
                 break;
@@ -237,14 +234,16 @@ public class HtmlParser extends Parser {
         }
     }
 
-    private static class Name implements Production<CharStream> {
+    private static class Name implements PredictiveProduction<CharStream> {
+        // TODO - legal element name characters here
+        static final CharClass nameChars = CharClass.anyExcept(' ', '\t', '>', '<', '=', '/');
+
+        public CharClass getFirstChars() {
+            return nameChars;
+        }
+
         public void match(CharStream charStream) {
-            // TODO - legal element name characters here
-            if (!charStream.consumeAnyExcept(' ', '\t', '>', '<', '=', '/')) {
-                return;
-            }
-            while (charStream.consumeAnyExcept(' ', '\t', '>', '<', '=', '/')) {
-            }
+            charStream.consumeRun(nameChars);
         }
     }
 
@@ -292,10 +291,14 @@ public class HtmlParser extends Parser {
         }
     }
 
-    private static class Comment implements Production<CharStream> {
-        private final Production<CharStream> startComment = Productions.match("<!--");
+    private static class Comment implements PredictiveProduction<CharStream> {
+        private final PredictiveProduction<CharStream> startComment = Productions.match("<!--");
         private final Production<CharStream> endComment = Productions.match("-->");
 
+        public CharClass getFirstChars() {
+            return startComment.getFirstChars();
+        }
+
         public void match(CharStream charStream) {
             if (!charStream.consume(startComment)) {
                 return;
@@ -334,11 +337,16 @@ public class HtmlParser extends Parser {
         }
     }
 
-    private static class Text implements Production<CharStream> {
+    private static class Text implements PredictiveProduction<CharStream> {
+        // TODO - legal text characters here
+        static final CharClass textChars = CharClass.anyExcept('<');
+
+        public CharClass getFirstChars() {
+            return textChars;
+        }
+
         public void match(CharStream charStream) {
-            // TODO - legal text characters here
-            while (charStream.consumeAnyExcept('<')) {
-            }
+            charStream.consumeRun(textChars);
         }
     }
 
@@ -0,0 +1,22 @@
+package net.rubygrapefruit.docs.html;
+
+import net.rubygrapefruit.docs.parser.Parser;
+import net.rubygrapefruit.docs.parser.ParserProvider;
+
+public class HtmlParserProvider implements ParserProvider {
+    public String getName() {
+        return "HTML";
+    }
+
+    public boolean canParse(String fileName) {
+        return fileName.endsWith(".html");
+    }
+
+    public boolean isDefault() {
+        return false;
+    }
+
+    public Parser createParser() {
+        return new HtmlParser();
+    }
+}
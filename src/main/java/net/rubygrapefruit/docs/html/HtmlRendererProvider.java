@@ -0,0 +1,26 @@
+package net.rubygrapefruit.docs.html;
+
+import net.rubygrapefruit.docs.renderer.Renderer;
+import net.rubygrapefruit.docs.renderer.RendererProvider;
+
+public class HtmlRendererProvider implements RendererProvider {
+    public String getName() {
+        return "html";
+    }
+
+    public String getDescription() {
+        return "Generate HTML 4 output";
+    }
+
+    public String getFileExtension() {
+        return "html";
+    }
+
+    public boolean isDefault() {
+        return true;
+    }
+
+    public Renderer createRenderer() {
+        return new HtmlRenderer();
+    }
+}
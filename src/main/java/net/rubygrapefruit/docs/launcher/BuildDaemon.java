@@ -0,0 +1,235 @@
+package net.rubygrapefruit.docs.launcher;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A long-lived process that accepts build requests from {@link DaemonClient} over a local socket, and runs them using a
+ * single {@link Main} instance, so that the JVM, renderers and themes stay warm between builds.
+ *
+ * <p>Requests are handled one at a time. While a request is running, {@code System.out} and {@code System.err} are
+ * redirected to the client, so that the build's log output is streamed back to the client.</p>
+ *
+ * <p>The daemon runs builds as the user that started it, so it only accepts requests from clients that can read its
+ * token. The token is generated when the daemon starts, and written to a file that only that user can read.</p>
+ */
+class BuildDaemon {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildDaemon.class);
+    private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+    private final Main launcher;
+    private final int port;
+    private final long startTime = System.currentTimeMillis();
+    private int requests;
+    private int failedRequests;
+
+    BuildDaemon(Main launcher, int port) {
+        this.launcher = launcher;
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws IOException {
+        OptionParser optionParser = new OptionParser();
+        optionParser.accepts("port", "The local port to listen on").withRequiredArg().ofType(Integer.class).defaultsTo(
+                DaemonClient.DEFAULT_PORT);
+        OptionSet result;
+        try {
+            result = optionParser.parse(args);
+        } catch (OptionException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.println("USAGE: docmatic --daemon [--port <port>]");
+            System.err.println();
+            optionParser.printHelpOn(System.err);
+            System.exit(1);
+            return;
+        }
+        new BuildDaemon(new Main(), (Integer) result.valueOf("port")).run();
+    }
+
+    /**
+     * Handles requests until a client asks the daemon to stop.
+     */
+    public void run() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+        File tokenFile = DaemonClient.getTokenFile(port);
+        String token = generateToken();
+        try {
+            writeToken(tokenFile, token);
+            LOGGER.info("Docmatic daemon listening on port {}.", port);
+            boolean running = true;
+            while (running) {
+                Socket socket = serverSocket.accept();
+                try {
+                    running = handle(socket, token);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not handle request.", e);
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            tokenFile.delete();
+            serverSocket.close();
+        }
+        LOGGER.info("Docmatic daemon stopped. {}", getStatus());
+    }
+
+    private boolean handle(Socket socket, String token) throws IOException {
+        // Don't let a client that never sends its request block the daemon
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        String clientToken = inputStream.readUTF();
+        File workingDir = new File(inputStream.readUTF());
+        String[] args = new String[inputStream.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = inputStream.readUTF();
+        }
+        socket.setSoTimeout(0);
+
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        PrintStream clientOut = new PrintStream(new ClientOutputStream(outputStream, DaemonClient.STDOUT), true);
+        PrintStream clientErr = new PrintStream(new ClientOutputStream(outputStream, DaemonClient.STDERR), true);
+        List<String> argList = Arrays.asList(args);
+        boolean keepRunning = true;
+        int exitValue;
+        if (!MessageDigest.isEqual(clientToken.getBytes("UTF-8"), token.getBytes("UTF-8"))) {
+            LOGGER.warn("Rejected a request with an invalid token.");
+            clientErr.println("The docmatic daemon rejected the request, as it did not have a valid token.");
+            exitValue = 1;
+        } else if (argList.equals(Arrays.asList("--status"))) {
+            clientOut.println(getStatus());
+            exitValue = 0;
+        } else if (argList.equals(Arrays.asList("--stop"))) {
+            clientOut.println("Stopping docmatic daemon.");
+            keepRunning = false;
+            exitValue = 0;
+        } else {
+            exitValue = build(args, workingDir, clientOut, clientErr);
+        }
+
+        outputStream.writeByte(DaemonClient.EXIT);
+        outputStream.writeInt(exitValue);
+        outputStream.flush();
+        return keepRunning;
+    }
+
+    private int build(String[] args, File workingDir, PrintStream clientOut, PrintStream clientErr) {
+        requests++;
+        long start = System.currentTimeMillis();
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+        int exitValue;
+        try {
+            exitValue = launcher.run(args, workingDir, true);
+        } catch (Throwable t) {
+            t.printStackTrace(clientErr);
+            exitValue = 1;
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        if (exitValue != 0) {
+            failedRequests++;
+        }
+        LOGGER.info("Request {} completed in {}ms with exit value {}.", new Object[]{requests,
+                System.currentTimeMillis() - start, exitValue});
+        return exitValue;
+    }
+
+    private static String generateToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+
+    /**
+     * Writes the token to the given file, which only the current user can read.
+     */
+    private static void writeToken(File tokenFile, String token) throws IOException {
+        File dir = tokenFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException(String.format("Could not create directory '%s'.", dir));
+        }
+        restrictToOwner(dir);
+        tokenFile.delete();
+        if (!tokenFile.createNewFile()) {
+            throw new IOException(String.format("Could not create token file '%s'.", tokenFile));
+        }
+        // Restrict access before the token is written
+        restrictToOwner(tokenFile);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tokenFile), "UTF-8");
+        try {
+            writer.write(token);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void restrictToOwner(File file) throws IOException {
+        boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true)
+                && file.setExecutable(false, false) && (file.isFile() || file.setExecutable(true, true));
+        // Windows cannot remove access for other users this way, and relies on the permissions of the user's home
+        // directory instead
+        if (!restricted && File.separatorChar != '\\') {
+            throw new IOException(String.format("Could not restrict access to '%s' to its owner.", file));
+        }
+    }
+
+    private String getStatus() {
+        long uptime = (System.currentTimeMillis() - startTime) / 1000;
+        return String.format("Uptime: %ss. Requests: %s (%s failed).", uptime, requests, failedRequests);
+    }
+
+    /**
+     * Forwards output to the client, as a sequence of frames of the given type.
+     */
+    private static class ClientOutputStream extends OutputStream {
+        private final DataOutputStream outputStream;
+        private final int type;
+
+        private ClientOutputStream(DataOutputStream outputStream, int type) {
+            this.outputStream = outputStream;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (outputStream) {
+                outputStream.writeByte(type);
+                outputStream.writeInt(len);
+                outputStream.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (outputStream) {
+                outputStream.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package net.rubygrapefruit.docs.launcher;
+
+import net.rubygrapefruit.docs.model.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs input builds using a work-stealing pool of worker threads. Each input build is split into parse, chunk and
+ * render tasks, and an idle worker steals tasks from busy workers, so that a large input file does not leave workers
+ * idle while small input files are waiting. The pool is reused for each call to {@link #build(java.util.List)}, until
+ * {@link #stop()} is called.
+ *
+ * <p>Alternatively, the builds can be run using a {@link BuildPipeline}, with a separate pool of threads for each
+ * stage of the build.</p>
+ *
+ * <p>Each input file is admitted to the pool only while the estimated heap used by the documents in flight fits within
+ * a {@link MemoryBudget}, so that the peak heap usage is bounded regardless of the number of input files.</p>
+ */
+class BuildExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildExecutor.class);
+    @Nullable
+    private final ForkJoinPool pool;
+    @Nullable
+    private final BuildPipeline pipeline;
+    private final MemoryBudget memoryBudget;
+    private final int prefetchDepth;
+    private final long prefetchLimit;
+
+    /**
+     * @param threads The number of threads in the work-stealing pool. Ignored when a pipeline is given.
+     * @param pipeline The pipeline to run the builds with, or null to use a work-stealing pool.
+     * @param prefetchDepth The maximum number of input files to read ahead.
+     * @param prefetchLimit The maximum number of bytes of input files to read ahead.
+     */
+    BuildExecutor(int threads, @Nullable BuildPipeline pipeline, MemoryBudget memoryBudget, int prefetchDepth,
+                  long prefetchLimit) {
+        this.pipeline = pipeline;
+        this.memoryBudget = memoryBudget;
+        this.prefetchDepth = prefetchDepth;
+        this.prefetchLimit = prefetchLimit;
+        pool = pipeline == null ? new ForkJoinPool(threads, new WorkerThreadFactory(), null, false) : null;
+    }
+
+    /**
+     * Runs the given builds. Failures are reported in input order, regardless of the order in which the builds
+     * complete, and do not prevent the remaining builds from running.
+     *
+     * @return The number of builds that failed.
+     */
+    public int build(List<InputBuild> builds) {
+        InputPrefetcher prefetcher = new InputPrefetcher(builds, prefetchDepth, prefetchLimit);
+        BuildProgress progress = new BuildProgress(builds.size());
+        prefetcher.start();
+        progress.start();
+        try {
+            return build(builds, prefetcher, progress);
+        } finally {
+            progress.stop();
+            prefetcher.stop();
+        }
+    }
+
+    private int build(List<InputBuild> builds, InputPrefetcher prefetcher, BuildProgress progress) {
+        if (pipeline != null) {
+            pipeline.startStatistics();
+        }
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (InputBuild build : builds) {
+            try {
+                MemoryBudget.Reservation reservation = memoryBudget.acquire(MemoryBudget.estimate(build.getInput()));
+                InputBuild.Run run = build.start(reservation, prefetcher, progress);
+                if (pipeline != null) {
+                    results.add(pipeline.submit(run));
+                } else {
+                    results.add(pool.submit(InputBuild.createTask(run)));
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        int failures = 0;
+        int upToDate = 0;
+        for (int i = 0; i < builds.size(); i++) {
+            try {
+                if (!results.get(i).get()) {
+                    upToDate++;
+                }
+            } catch (ExecutionException e) {
+                LOGGER.error(String.format("Could not build '%s'.", builds.get(i).getInput()), e.getCause());
+                failures++;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        if (pipeline != null) {
+            pipeline.logStatistics();
+        }
+        if (upToDate > 0) {
+            LOGGER.info("{} of {} inputs are up-to-date.", upToDate, builds.size());
+        }
+        if (failures > 0) {
+            LOGGER.error("{} of {} inputs could not be built.", failures, builds.size());
+        }
+        return failures;
+    }
+
+    public void stop() {
+        if (pipeline != null) {
+            pipeline.stop();
+        } else {
+            pool.shutdownNow();
+        }
+    }
+
+    private static class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("docmatic-worker-" + counter.getAndIncrement());
+            return thread;
+        }
+    }
+}
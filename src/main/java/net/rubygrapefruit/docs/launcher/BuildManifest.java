@@ -0,0 +1,188 @@
+package net.rubygrapefruit.docs.launcher;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.io.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Records, for each input file that has been built into an output directory, the hash of the content of the input
+ * file, the outputs that were requested, and the files that were generated. Used to skip those input files whose
+ * content and requested outputs have not changed since they were last built.
+ *
+ * <p>An input file can be built into the same output directory more than once with different outputs, so there is an
+ * entry for each input file and set of requested outputs. The generated files are stored relative to the output
+ * directory, so that the manifest does not depend on the working directory of the build.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class BuildManifest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildManifest.class);
+    static final String FILE_NAME = ".docmatic-manifest";
+    private static final String HASH = ".hash";
+    private static final String OPTIONS = ".options";
+    private static final String OUTPUTS = ".outputs";
+    private final File outputDir;
+    private final File manifestFile;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    private BuildManifest(File outputDir) {
+        this.outputDir = outputDir.toPath().toAbsolutePath().normalize().toFile();
+        this.manifestFile = new File(this.outputDir, FILE_NAME);
+    }
+
+    /**
+     * Loads the manifest for the given output directory. Returns an empty manifest if the output directory does not
+     * contain a manifest, or if it cannot be read.
+     */
+    public static BuildManifest load(File outputDir) {
+        BuildManifest manifest = new BuildManifest(outputDir);
+        manifest.read();
+        return manifest;
+    }
+
+    /**
+     * Calculates the hash of the content of the given file.
+     */
+    public static String hash(File input) throws IOException {
+        return toHex(Files.getDigest(input, createDigest()));
+    }
+
+    /**
+     * Calculates the hash of the given content of a file.
+     */
+    public static String hash(byte[] content) {
+        return toHex(createDigest().digest(content));
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns true if the given input file was last built with the given content hash and options, and all files
+     * generated by that build still exist.
+     */
+    public synchronized boolean isUpToDate(File input, String hash, String options) {
+        Entry entry = entries.get(key(input, options));
+        if (entry == null || !entry.hash.equals(hash)) {
+            return false;
+        }
+        for (File file : entry.outputs) {
+            if (!file.isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that the given input file has been built with the given options.
+     */
+    public synchronized void built(File input, String hash, String options, List<File> outputs) {
+        List<File> absoluteOutputs = new ArrayList<File>();
+        for (File output : outputs) {
+            absoluteOutputs.add(output.getAbsoluteFile());
+        }
+        entries.put(key(input, options), new Entry(hash, options, absoluteOutputs));
+    }
+
+    /**
+     * Discards any record of the given input file being built with the given options.
+     */
+    public synchronized void remove(File input, String options) {
+        entries.remove(key(input, options));
+    }
+
+    /**
+     * Writes this manifest to the output directory.
+     */
+    public synchronized void write() throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            properties.setProperty(mapEntry.getKey() + HASH, entry.hash);
+            properties.setProperty(mapEntry.getKey() + OPTIONS, entry.options);
+            List<String> paths = new ArrayList<String>();
+            for (File output : entry.outputs) {
+                paths.add(outputDir.toPath().relativize(output.toPath().normalize()).toString());
+            }
+            properties.setProperty(mapEntry.getKey() + OUTPUTS, Joiner.on(File.pathSeparatorChar).join(paths));
+        }
+        manifestFile.getParentFile().mkdirs();
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(manifestFile));
+        try {
+            properties.store(outputStream, "docmatic build manifest");
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void read() {
+        if (!manifestFile.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try {
+            InputStream inputStream = new BufferedInputStream(new FileInputStream(manifestFile));
+            try {
+                properties.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn(String.format("Could not read build manifest '%s'. Building all inputs.", manifestFile), e);
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.endsWith(HASH)) {
+                continue;
+            }
+            String key = name.substring(0, name.length() - HASH.length());
+            String options = properties.getProperty(key + OPTIONS);
+            String paths = properties.getProperty(key + OUTPUTS);
+            if (options == null || paths == null) {
+                continue;
+            }
+            List<File> outputs = new ArrayList<File>();
+            for (String path : Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(paths)) {
+                outputs.add(new File(outputDir, path));
+            }
+            entries.put(key, new Entry(properties.getProperty(name), options, outputs));
+        }
+    }
+
+    private static String key(File input, String options) {
+        return input.getAbsolutePath() + File.pathSeparatorChar + options;
+    }
+
+    private static class Entry {
+        final String hash;
+        final String options;
+        final List<File> outputs;
+
+        private Entry(String hash, String options, List<File> outputs) {
+            this.hash = hash;
+            this.options = options;
+            this.outputs = outputs;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package net.rubygrapefruit.docs.launcher;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import net.rubygrapefruit.docs.model.Document;
+import net.rubygrapefruit.docs.renderer.OutputFactory;
+import net.rubygrapefruit.docs.renderer.RenderableDocument;
+import net.rubygrapefruit.docs.theme.RenderableDocumentBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs input builds as a pipeline of stages: parse, chunk, render and write. Each stage has its own pool of threads,
+ * and takes its work from a bounded queue, so that a stage that is faster than the stages that follow it blocks rather
+ * than piling up documents in memory. The render stage renders each output into memory, and the write stage writes it
+ * to the file system.
+ *
+ * <p>The queue depth, utilisation and time spent blocked on the following stage are collected for each stage for
+ * each call to {@link #startStatistics()}, and logged by {@link #logStatistics()}, so that the thread count of each
+ * stage can be tuned.</p>
+ */
+class BuildPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildPipeline.class);
+    private final Stage<InputState> parseStage;
+    private final Stage<ChunkItem> chunkStage;
+    private final Stage<RenderItem> renderStage;
+    private final Stage<WriteItem> writeStage;
+    private final List<Stage<?>> stages = new ArrayList<Stage<?>>();
+    private long statisticsStart;
+
+    /**
+     * @param queueSize The maximum number of items waiting for each stage.
+     */
+    BuildPipeline(int parseThreads, int chunkThreads, int renderThreads, int writeThreads, int queueSize) {
+        parseStage = add(new Stage<InputState>("parse", parseThreads, queueSize) {
+            @Override
+            void process(InputState state) throws Exception {
+                parse(state);
+            }
+        });
+        chunkStage = add(new Stage<ChunkItem>("chunk", chunkThreads, queueSize) {
+            @Override
+            void process(ChunkItem item) throws Exception {
+                chunk(item);
+            }
+        });
+        renderStage = add(new Stage<RenderItem>("render", renderThreads, queueSize) {
+            @Override
+            void process(RenderItem item) throws Exception {
+                render(item);
+            }
+        });
+        writeStage = add(new Stage<WriteItem>("write", writeThreads, queueSize) {
+            @Override
+            void process(WriteItem item) throws Exception {
+                write(item);
+            }
+        });
+        for (Stage<?> stage : stages) {
+            stage.start();
+        }
+    }
+
+    private <T extends Item> Stage<T> add(Stage<T> stage) {
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Queues the given build, blocking while the parse stage is full.
+     *
+     * @return A future that is completed with true if the input file was built, false if it was up-to-date.
+     */
+    public ListenableFuture<Boolean> submit(InputBuild.Run run) throws InterruptedException {
+        InputState state = new InputState(run);
+        parseStage.put(state);
+        return state.result;
+    }
+
+    /**
+     * Starts collecting a new set of statistics.
+     */
+    public void startStatistics() {
+        statisticsStart = System.nanoTime();
+        for (Stage<?> stage : stages) {
+            stage.resetStatistics();
+        }
+    }
+
+    /**
+     * Logs the queue depth and utilisation of each stage since statistics were last started.
+     */
+    public void logStatistics() {
+        long elapsed = System.nanoTime() - statisticsStart;
+        LOGGER.info("Pipeline statistics:");
+        for (Stage<?> stage : stages) {
+            LOGGER.info(String.format(
+                    "  %-6s %2d threads, %5d items, %5.1f%% busy, %5.1f%% blocked, queue depth %.1f average, %d max",
+                    stage.name, stage.threads.size(), stage.items.get(), percentage(stage.busyNanos.get(),
+                    stage.threads.size() * elapsed), percentage(stage.blockedNanos.get(), stage.threads.size()
+                    * elapsed), stage.getAverageQueueDepth(), stage.maxQueueDepth.get()));
+        }
+    }
+
+    private static double percentage(long value, long total) {
+        return total == 0 ? 0.0 : 100.0 * value / total;
+    }
+
+    public void stop() {
+        for (Stage<?> stage : stages) {
+            stage.stop();
+        }
+    }
+
+    private void parse(InputState state) throws InterruptedException {
+        if (state.run.isUpToDate()) {
+            state.succeeded(false);
+            return;
+        }
+        Document document = state.run.parse();
+        Map<RenderableDocumentBuilder, List<Output>> outputsByBuilder = state.run.getOutputsByBuilder();
+        int outputs = 0;
+        for (List<Output> builderOutputs : outputsByBuilder.values()) {
+            outputs += builderOutputs.size();
+        }
+        if (outputs == 0) {
+            state.run.built();
+            state.succeeded(true);
+            return;
+        }
+        state.remaining.set(outputs);
+        for (Map.Entry<RenderableDocumentBuilder, List<Output>> entry : outputsByBuilder.entrySet()) {
+            chunkStage.put(new ChunkItem(state, document, entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private void chunk(ChunkItem item) throws InterruptedException {
+        RenderableDocument renderableDocument = item.state.run.chunk(item.document, item.builder);
+        for (Output output : item.outputs) {
+            renderStage.put(new RenderItem(item.state, renderableDocument, output));
+        }
+    }
+
+    private void render(RenderItem item) throws InterruptedException {
+        BufferingOutputFactory outputFactory = new BufferingOutputFactory();
+        item.state.run.render(item.renderableDocument, item.output, outputFactory);
+        writeStage.put(new WriteItem(item.state, outputFactory.files));
+    }
+
+    private void write(WriteItem item) throws IOException {
+        BuildProfile.Timer timer = item.state.run.startTimer();
+        OutputFactory outputFactory = item.state.run.getOutputFactory();
+        for (BufferedFile file : item.files) {
+            OutputStream outputStream = outputFactory.create(file.file);
+            try {
+                file.content.writeTo(outputStream);
+            } finally {
+                outputStream.close();
+            }
+        }
+        if (timer != null && !item.files.isEmpty()) {
+            timer.stop(item.state.run.getInput(), item.files.get(0).file, "write");
+        }
+        if (item.state.remaining.decrementAndGet() == 0) {
+            item.state.run.built();
+            item.state.succeeded(true);
+        }
+    }
+
+    /**
+     * A stage of the pipeline, with its own queue and threads.
+     */
+    private abstract static class Stage<T extends Item> {
+        /**
+         * The time that the current stage thread has spent blocked on a full queue while processing its current item.
+         */
+        private static final ThreadLocal<long[]> BLOCKED_NANOS = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[1];
+            }
+        };
+        final String name;
+        final BlockingQueue<T> queue;
+        final List<Thread> threads = new ArrayList<Thread>();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong blockedNanos = new AtomicLong();
+        final AtomicInteger items = new AtomicInteger();
+        final AtomicLong queueDepthTotal = new AtomicLong();
+        final AtomicInteger queueDepthSamples = new AtomicInteger();
+        final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+        Stage(String name, int threadCount, int queueSize) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<T>(queueSize);
+            for (int i = 0; i < threadCount; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        processQueue();
+                    }
+                }, "docmatic-" + name + "-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+        }
+
+        void start() {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+        }
+
+        void stop() {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+
+        void put(T item) throws InterruptedException {
+            long start = System.nanoTime();
+            queue.put(item);
+            BLOCKED_NANOS.get()[0] += System.nanoTime() - start;
+            int depth = queue.size();
+            queueDepthTotal.addAndGet(depth);
+            queueDepthSamples.incrementAndGet();
+            while (true) {
+                int max = maxQueueDepth.get();
+                if (depth <= max || maxQueueDepth.compareAndSet(max, depth)) {
+                    break;
+                }
+            }
+        }
+
+        void resetStatistics() {
+            busyNanos.set(0);
+            blockedNanos.set(0);
+            items.set(0);
+            queueDepthTotal.set(0);
+            queueDepthSamples.set(0);
+            maxQueueDepth.set(0);
+        }
+
+        double getAverageQueueDepth() {
+            int samples = queueDepthSamples.get();
+            return samples == 0 ? 0.0 : (double) queueDepthTotal.get() / samples;
+        }
+
+        private void processQueue() {
+            try {
+                while (true) {
+                    T item = queue.take();
+                    items.incrementAndGet();
+                    long[] blocked = BLOCKED_NANOS.get();
+                    blocked[0] = 0;
+                    long start = System.nanoTime();
+                    try {
+                        if (!item.getState().isFailed()) {
+                            process(item);
+                        }
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Throwable t) {
+                        item.getState().failed(t);
+                    } finally {
+                        busyNanos.addAndGet(System.nanoTime() - start - blocked[0]);
+                        blockedNanos.addAndGet(blocked[0]);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }
+
+        abstract void process(T item) throws Exception;
+    }
+
+    /**
+     * The state of a single build as it moves through the pipeline.
+     */
+    private static class InputState implements Item {
+        final InputBuild.Run run;
+        final SettableFuture<Boolean> result = SettableFuture.create();
+        final AtomicInteger remaining = new AtomicInteger();
+
+        InputState(InputBuild.Run run) {
+            this.run = run;
+        }
+
+        public InputState getState() {
+            return this;
+        }
+
+        boolean isFailed() {
+            return result.isDone();
+        }
+
+        void succeeded(boolean built) {
+            run.release();
+            result.set(built);
+        }
+
+        void failed(Throwable failure) {
+            run.release();
+            result.setException(failure);
+        }
+    }
+
+    private interface Item {
+        InputState getState();
+    }
+
+    private static class ChunkItem implements Item {
+        final InputState state;
+        final Document document;
+        final RenderableDocumentBuilder builder;
+        final List<Output> outputs;
+
+        ChunkItem(InputState state, Document document, RenderableDocumentBuilder builder, List<Output> outputs) {
+            this.state = state;
+            this.document = document;
+            this.builder = builder;
+            this.outputs = outputs;
+        }
+
+        public InputState getState() {
+            return state;
+        }
+    }
+
+    private static class RenderItem implements Item {
+        final InputState state;
+        final RenderableDocument renderableDocument;
+        final Output output;
+
+        RenderItem(InputState state, RenderableDocument renderableDocument, Output output) {
+            this.state = state;
+            this.renderableDocument = renderableDocument;
+            this.output = output;
+        }
+
+        public InputState getState() {
+            return state;
+        }
+    }
+
+    private static class WriteItem implements Item {
+        final InputState state;
+        final List<BufferedFile> files;
+
+        WriteItem(InputState state, List<BufferedFile> files) {
+            this.state = state;
+            this.files = files;
+        }
+
+        public InputState getState() {
+            return state;
+        }
+    }
+
+    private static class BufferedFile {
+        final File file;
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        BufferedFile(File file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Collects the output files of a single render in memory.
+     */
+    private static class BufferingOutputFactory implements OutputFactory {
+        final List<BufferedFile> files = new ArrayList<BufferedFile>();
+
+        public OutputStream create(File file) {
+            BufferedFile bufferedFile = new BufferedFile(file);
+            files.add(bufferedFile);
+            return bufferedFile.content;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.rubygrapefruit.docs.launcher;
+
+import net.rubygrapefruit.docs.model.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+/**
+ * Collects the wall-clock time, CPU time and allocated bytes of each phase of a build, for each input and output.
+ *
+ * <p>Instances are thread-safe. Each phase is measured on the thread that runs it.</p>
+ */
+class BuildProfile {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildProfile.class);
+    private static final int SUMMARY_ENTRIES = 10;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+    private final List<PhaseTiming> timings = new ArrayList<PhaseTiming>();
+
+    BuildProfile() {
+        cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        allocationSupported = threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Starts measuring a phase on the current thread.
+     */
+    public Timer start() {
+        return new Timer();
+    }
+
+    /**
+     * Writes the collected timings to the given file, as JSON, and logs a summary of the most expensive phases.
+     */
+    public void write(File profileFile) throws IOException {
+        List<PhaseTiming> timings;
+        synchronized (this.timings) {
+            timings = new ArrayList<PhaseTiming>(this.timings);
+        }
+
+        if (profileFile.getParentFile() != null) {
+            profileFile.getParentFile().mkdirs();
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(profileFile), "utf-8"));
+        try {
+            writer.write("{\n  \"phases\": [");
+            for (int i = 0; i < timings.size(); i++) {
+                PhaseTiming timing = timings.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write(String.format("    {\"input\": %s, \"output\": %s, \"phase\": %s, \"wallNanos\": %s, "
+                        + "\"cpuNanos\": %s, \"allocatedBytes\": %s}", quote(timing.input), quote(timing.output),
+                        quote(timing.phase), timing.wallNanos, timing.cpuNanos, timing.allocatedBytes));
+            }
+            writer.write("\n  ]\n}\n");
+        } finally {
+            writer.close();
+        }
+
+        logSummary(timings);
+        LOGGER.info("Profile written to {}.", profileFile);
+    }
+
+    private void logSummary(List<PhaseTiming> timings) {
+        Map<String, PhaseTiming> totals = new LinkedHashMap<String, PhaseTiming>();
+        long totalWall = 0;
+        for (PhaseTiming timing : timings) {
+            PhaseTiming total = totals.get(timing.phase);
+            if (total == null) {
+                total = new PhaseTiming(null, null, timing.phase, 0, 0, 0);
+                totals.put(timing.phase, total);
+            }
+            total.add(timing);
+            totalWall += timing.wallNanos;
+        }
+
+        LOGGER.info("Time spent in each phase:");
+        List<PhaseTiming> sortedTotals = new ArrayList<PhaseTiming>(totals.values());
+        Collections.sort(sortedTotals);
+        for (PhaseTiming total : sortedTotals) {
+            LOGGER.info(String.format("  %-8s %s (%.1f%%)", total.phase, total.format(),
+                    totalWall == 0 ? 0.0 : 100.0 * total.wallNanos / totalWall));
+        }
+
+        LOGGER.info("Most expensive phases:");
+        List<PhaseTiming> sorted = new ArrayList<PhaseTiming>(timings);
+        Collections.sort(sorted);
+        for (PhaseTiming timing : sorted.subList(0, Math.min(SUMMARY_ENTRIES, sorted.size()))) {
+            String target = timing.output == null ? timing.input : timing.output;
+            LOGGER.info(String.format("  %-8s %s %s", timing.phase, timing.format(), target));
+        }
+    }
+
+    private static String quote(@Nullable String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                builder.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                builder.append(String.format("\\u%04x", (int) ch));
+            } else {
+                builder.append(ch);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private long cpuTime() {
+        return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long allocatedBytes() {
+        if (!allocationSupported) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures a single phase. Must be stopped on the thread that started it.
+     */
+    public class Timer {
+        private final long startWall = System.nanoTime();
+        private final long startCpu = cpuTime();
+        private final long startAllocated = allocatedBytes();
+
+        /**
+         * Finishes measuring the phase and records the result.
+         *
+         * @param output The output that the phase generated, or null if the phase applies to the whole input.
+         */
+        public void stop(File input, @Nullable File output, String phase) {
+            PhaseTiming timing = new PhaseTiming(input.getPath(), output == null ? null : output.getPath(), phase,
+                    System.nanoTime() - startWall, cpuTime() - startCpu, allocatedBytes() - startAllocated);
+            synchronized (timings) {
+                timings.add(timing);
+            }
+        }
+    }
+
+    private static class PhaseTiming implements Comparable<PhaseTiming> {
+        final String input;
+        final String output;
+        final String phase;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+
+        private PhaseTiming(String input, String output, String phase, long wallNanos, long cpuNanos,
+                            long allocatedBytes) {
+            this.input = input;
+            this.output = output;
+            this.phase = phase;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        void add(PhaseTiming other) {
+            wallNanos += other.wallNanos;
+            cpuNanos += other.cpuNanos;
+            allocatedBytes += other.allocatedBytes;
+        }
+
+        String format() {
+            return String.format("wall %8.1fms  cpu %8.1fms  allocated %8.1fMB", wallNanos / 1e6, cpuNanos / 1e6,
+                    allocatedBytes / (1024.0 * 1024.0));
+        }
+
+        /**
+         * Orders the most expensive timing first.
+         */
+        public int compareTo(PhaseTiming other) {
+            return wallNanos > other.wallNanos ? -1 : wallNanos < other.wallNanos ? 1 : 0;
+        }
+    }
+}
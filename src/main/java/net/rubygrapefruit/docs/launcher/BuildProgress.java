@@ -0,0 +1,145 @@
+package net.rubygrapefruit.docs.launcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates the progress of a build, and periodically logs its throughput using a background thread, rather than
+ * logging each document and output file as it is processed. Logs a summary of the build once it has finished.
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class BuildProgress {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildProgress.class);
+    static final long REPORT_INTERVAL_MILLIS = 2000;
+    private final int inputs;
+    private final long startNanos;
+    private final AtomicInteger built = new AtomicInteger();
+    private final AtomicInteger upToDate = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger pages = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private Thread thread;
+
+    /**
+     * @param inputs The total number of input files to build.
+     */
+    BuildProgress(int inputs) {
+        this(inputs, System.nanoTime());
+    }
+
+    BuildProgress(int inputs, long startNanos) {
+        this.inputs = inputs;
+        this.startNanos = startNanos;
+    }
+
+    public void start() {
+        thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        Thread.sleep(REPORT_INTERVAL_MILLIS);
+                        LOGGER.info(getStatus(System.nanoTime()));
+                    }
+                } catch (InterruptedException e) {
+                    // Stopped
+                }
+            }
+        }, "docmatic-progress");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops reporting progress, and logs a summary of the build.
+     */
+    public void stop() {
+        if (thread != null) {
+            thread.interrupt();
+        }
+        LOGGER.info(getSummary(System.nanoTime()));
+    }
+
+    /**
+     * Records that an input file has been built.
+     */
+    public void documentBuilt() {
+        built.incrementAndGet();
+    }
+
+    /**
+     * Records that an input file was skipped because it is up-to-date.
+     */
+    public void documentUpToDate() {
+        upToDate.incrementAndGet();
+    }
+
+    /**
+     * Records that an input file failed to build.
+     */
+    public void documentFailed() {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * Records that an output file has been written.
+     */
+    public void pageWritten(long length) {
+        pages.incrementAndGet();
+        bytes.addAndGet(length);
+    }
+
+    String getStatus(long nowNanos) {
+        double seconds = getElapsedSeconds(nowNanos);
+        int finished = built.get() + upToDate.get() + failed.get();
+        double documentRate = finished / seconds;
+        String eta = documentRate == 0 ? "unknown" : formatDuration((long) ((inputs - finished) / documentRate));
+        return String.format("Finished %d of %s, %.1f documents/s, %.1f pages/s, %.1f MB/s written, ETA %s.",
+                finished, plural(inputs, "document"), documentRate, pages.get() / seconds,
+                megabytes(bytes.get()) / seconds, eta);
+    }
+
+    String getSummary(long nowNanos) {
+        double seconds = getElapsedSeconds(nowNanos);
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Built %s, %s, %.1f MB in %s (%.1f documents/s, %.1f pages/s, %.1f MB/s).",
+                plural(built.get(), "document"), plural(pages.get(), "page"), megabytes(bytes.get()),
+                formatDuration((long) seconds), built.get() / seconds, pages.get() / seconds,
+                megabytes(bytes.get()) / seconds));
+        if (upToDate.get() > 0) {
+            summary.append(String.format(" Skipped %s that %s up-to-date.", plural(upToDate.get(), "document"),
+                    upToDate.get() == 1 ? "was" : "were"));
+        }
+        if (failed.get() > 0) {
+            summary.append(String.format(" %s failed.", plural(failed.get(), "document")));
+        }
+        return summary.toString();
+    }
+
+    private static String plural(int count, String noun) {
+        return count == 1 ? count + " " + noun : count + " " + noun + "s";
+    }
+
+    private double getElapsedSeconds(long nowNanos) {
+        // Avoid dividing by zero for a build that finishes within the resolution of the clock
+        return Math.max(nowNanos - startNanos, 1L) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static String formatDuration(long seconds) {
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return String.format("%dm %ds", seconds / 60, seconds % 60);
+        }
+        return String.format("%dh %dm", seconds / 3600, seconds / 60 % 60);
+    }
+}
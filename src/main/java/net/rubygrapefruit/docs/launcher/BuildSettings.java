@@ -0,0 +1,54 @@
+package net.rubygrapefruit.docs.launcher;
+
+import net.rubygrapefruit.docs.model.Nullable;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The settings shared by all of the input builds of a launcher run.
+ */
+class BuildSettings {
+    private final Registry registry;
+    private final List<Output> outputs;
+    private final File outputDir;
+    @Nullable
+    private final BuildManifest manifest;
+    @Nullable
+    private final BuildProfile profile;
+
+    /**
+     * @param manifest The manifest to use to skip input files that are up-to-date, or null to always build.
+     * @param profile The profile to record the cost of each phase of the build in, or null to not profile.
+     */
+    BuildSettings(Registry registry, List<Output> outputs, File outputDir, @Nullable BuildManifest manifest,
+                  @Nullable BuildProfile profile) {
+        this.registry = registry;
+        this.outputs = outputs;
+        this.outputDir = outputDir;
+        this.manifest = manifest;
+        this.profile = profile;
+    }
+
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    public List<Output> getOutputs() {
+        return outputs;
+    }
+
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    @Nullable
+    public BuildManifest getManifest() {
+        return manifest;
+    }
+
+    @Nullable
+    public BuildProfile getProfile() {
+        return profile;
+    }
+}
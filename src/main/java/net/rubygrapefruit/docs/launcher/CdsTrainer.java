@@ -0,0 +1,199 @@
+package net.rubygrapefruit.docs.launcher;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import net.rubygrapefruit.docs.model.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.*;
+
+/**
+ * Generates a class data sharing archive for the launcher, so that the JVM can map the launcher's classes from the
+ * archive at startup instead of loading and verifying them. The archive is generated by running a training build of
+ * some sample Markdown, DocBook and HTML documents to HTML and PDF, in a child JVM. Then measures the startup time of a
+ * small build with and without the archive.
+ *
+ * <p>By default, the archive is written next to the launcher's jar, where the start scripts look for it. The archive
+ * can be used only with the same JVM and classpath that generated it, so the version of the JVM is written next to the
+ * archive, for the start scripts to compare against the JVM they run. Requires Java 13 or later, and a classpath that
+ * contains only jar files.</p>
+ */
+class CdsTrainer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CdsTrainer.class);
+    static final String ARCHIVE_FILE_NAME = "docmatic.jsa";
+    static final String VERSION_FILE_SUFFIX = ".version";
+    private static final List<String> TRAINING_INPUTS = Arrays.asList("basic.md", "docbook.xml", "html5.html");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int exitValue = new CdsTrainer().run(args);
+        if (exitValue != 0) {
+            System.exit(exitValue);
+        }
+    }
+
+    public int run(String[] args) throws IOException, InterruptedException {
+        OptionParser optionParser = new OptionParser();
+        optionParser.accepts("archive", "The archive file to generate. Defaults to lib/" + ARCHIVE_FILE_NAME
+                + " in the installation directory").withRequiredArg();
+        optionParser.accepts("iterations", "The number of builds to run to measure the startup time, or 0 to skip")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(5);
+        OptionSet result;
+        try {
+            result = optionParser.parse(args);
+        } catch (OptionException e) {
+            System.err.println(e.getMessage());
+            System.err.println();
+            System.err.println("USAGE: docmatic --train-cds [options]");
+            System.err.println();
+            optionParser.printHelpOn(System.err);
+            return 1;
+        }
+
+        File archive = result.has("archive") ? new File(result.valueOf("archive").toString()) : getDefaultArchive();
+        if (archive == null) {
+            System.err.println("Could not determine the installation directory. Use --archive to specify the archive "
+                    + "file to generate.");
+            return 1;
+        }
+        archive = archive.getAbsoluteFile();
+        int iterations = (Integer) result.valueOf("iterations");
+
+        File workDir = Files.createTempDir();
+        try {
+            List<String> inputs = extractTrainingInputs(workDir);
+            List<String> buildArgs = new ArrayList<String>(Arrays.asList("--html", "--pdf", "--minimal", "--default",
+                    "--fixed-width", "--out", new File(workDir, "training").getPath()));
+            buildArgs.addAll(inputs);
+
+            LOGGER.info("Running training build.");
+            File versionFile = new File(archive.getPath() + VERSION_FILE_SUFFIX);
+            versionFile.delete();
+            archive.delete();
+            archive.getParentFile().mkdirs();
+            JvmResult training = runJvm(Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive), buildArgs);
+            if (training.exitValue != 0 || !archive.isFile()) {
+                System.err.println(training.output);
+                System.err.println(String.format("Could not generate class data sharing archive '%s'. This requires "
+                        + "Java 13 or later, and a classpath that contains only jar files.", archive));
+                return 1;
+            }
+            // The training build runs on this JVM, so the archive belongs to this version
+            Files.write(System.getProperty("java.version"), versionFile, Charsets.UTF_8);
+            LOGGER.info("Class data sharing archive written to {}.", archive);
+
+            if (iterations > 0) {
+                benchmark(archive, inputs.get(0), new File(workDir, "benchmark"), iterations);
+            }
+            return 0;
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    /**
+     * Measures the time taken by a small build, which is dominated by startup, with and without the archive.
+     */
+    private void benchmark(File archive, String input, File outputDir, int iterations)
+            throws IOException, InterruptedException {
+        LOGGER.info("Measuring startup time using {} builds.", iterations);
+        List<String> buildArgs = Arrays.asList("--html", "--minimal", "--out", outputDir.getPath(), input);
+        List<String> withoutArchive = Collections.emptyList();
+        List<String> withArchive = Collections.singletonList("-XX:SharedArchiveFile=" + archive);
+        long[] without = new long[iterations];
+        long[] with = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            without[i] = runJvm(withoutArchive, buildArgs).elapsedMillis;
+            with[i] = runJvm(withArchive, buildArgs).elapsedMillis;
+        }
+        long withoutMedian = median(without);
+        long withMedian = median(with);
+        LOGGER.info(String.format("Median build time without archive: %sms, with archive: %sms (%.0f%% faster).",
+                withoutMedian, withMedian, withoutMedian == 0 ? 0.0 : 100.0 * (withoutMedian - withMedian)
+                / withoutMedian));
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private List<String> extractTrainingInputs(File workDir) throws IOException {
+        List<String> inputs = new ArrayList<String>();
+        for (String name : TRAINING_INPUTS) {
+            File input = new File(workDir, name);
+            Files.write(Resources.toByteArray(Resources.getResource(CdsTrainer.class, "training/" + name)), input);
+            inputs.add(input.getPath());
+        }
+        return inputs;
+    }
+
+    /**
+     * Runs the launcher in a child JVM, using the same JVM and classpath as this process.
+     */
+    private JvmResult runJvm(List<String> jvmArgs, List<String> args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.addAll(args);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+        String output = new String(ByteStreams.toByteArray(process.getInputStream()));
+        int exitValue = process.waitFor();
+        return new JvmResult(exitValue, output, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Returns the archive file in the directory that contains the launcher's jar, or null if the launcher is not
+     * running from a jar.
+     */
+    @Nullable
+    private static File getDefaultArchive() {
+        File codeSource;
+        try {
+            codeSource = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        if (!codeSource.isFile()) {
+            return null;
+        }
+        return new File(codeSource.getParentFile(), ARCHIVE_FILE_NAME);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static class JvmResult {
+        final int exitValue;
+        final String output;
+        final long elapsedMillis;
+
+        private JvmResult(int exitValue, String output, long elapsedMillis) {
+            this.exitValue = exitValue;
+            this.output = output;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.rubygrapefruit.docs.launcher;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A thin client that forwards its command-line arguments to a running {@link BuildDaemon}, and copies the output and
+ * exit value of the build back to this process. Uses only JDK classes, so that it starts quickly.
+ *
+ * <p>Each request includes the token that the daemon wrote when it started, read from {@link #getTokenFile(int)}.</p>
+ */
+public class DaemonClient {
+    static final int DEFAULT_PORT = 9731;
+    static final int STDOUT = 1;
+    static final int STDERR = 2;
+    static final int EXIT = 3;
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int firstArg = 0;
+        if (args.length > 1 && args[0].equals("--port")) {
+            port = Integer.parseInt(args[1]);
+            firstArg = 2;
+        }
+
+        String token;
+        try {
+            token = readToken(getTokenFile(port));
+        } catch (IOException e) {
+            System.err.println(String.format(
+                    "Could not read the token of the docmatic daemon on port %s. Use 'docmatic --daemon' to start it.",
+                    port));
+            System.exit(1);
+            return;
+        }
+
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getByName(null), port);
+        } catch (ConnectException e) {
+            System.err.println(String.format(
+                    "Could not connect to the docmatic daemon on port %s. Use 'docmatic --daemon' to start it.", port));
+            System.exit(1);
+            return;
+        }
+
+        int exitValue;
+        try {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            outputStream.writeUTF(token);
+            outputStream.writeUTF(new File("").getAbsolutePath());
+            outputStream.writeInt(args.length - firstArg);
+            for (int i = firstArg; i < args.length; i++) {
+                outputStream.writeUTF(args[i]);
+            }
+            outputStream.flush();
+
+            exitValue = copyOutput(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        } finally {
+            socket.close();
+        }
+        System.exit(exitValue);
+    }
+
+    /**
+     * Returns the file that the daemon on the given port writes its token to.
+     */
+    static File getTokenFile(int port) {
+        return new File(System.getProperty("user.home"), ".docmatic/daemon-" + port + ".token");
+    }
+
+    private static String readToken(File tokenFile) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(tokenFile), "UTF-8"));
+        try {
+            String token = reader.readLine();
+            if (token == null) {
+                throw new EOFException();
+            }
+            return token.trim();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static int copyOutput(DataInputStream inputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int type;
+            try {
+                type = inputStream.readByte();
+            } catch (EOFException e) {
+                System.err.println("The docmatic daemon disconnected before the build completed.");
+                return 1;
+            }
+            if (type == EXIT) {
+                return inputStream.readInt();
+            }
+            PrintStream target = type == STDOUT ? System.out : System.err;
+            int length = inputStream.readInt();
+            while (length > 0) {
+                int nread = inputStream.read(buffer, 0, Math.min(length, buffer.length));
+                if (nread < 0) {
+                    throw new EOFException();
+                }
+                target.write(buffer, 0, nread);
+                length -= nread;
+            }
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package net.rubygrapefruit.docs.launcher;
+
+import com.google.common.base.Joiner;
+import net.rubygrapefruit.docs.model.Document;
+import net.rubygrapefruit.docs.model.Nullable;
+import net.rubygrapefruit.docs.model.buildable.BuildableDocument;
+import net.rubygrapefruit.docs.parser.ParseListener;
+import net.rubygrapefruit.docs.parser.Parser;
+import net.rubygrapefruit.docs.renderer.FileOutputFactory;
+import net.rubygrapefruit.docs.renderer.OutputFactory;
+import net.rubygrapefruit.docs.renderer.RenderableDocument;
+import net.rubygrapefruit.docs.theme.RenderableDocumentBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a single input file and renders it to each of the requested outputs. The renderable document is built once
+ * for each distinct document builder used by the output themes, and shared by the outputs that use that builder.
+ * Instances are independent of each other, so may be run concurrently.
+ *
+ * <p>Each build of the input file is represented by a {@link Run}, which provides the steps of the build. The steps
+ * are scheduled either by a task that forks a task for each distinct document builder, which in turn forks a task for
+ * each output that uses that builder, or by the stages of a {@link BuildPipeline}.</p>
+ */
+class InputBuild {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InputBuild.class);
+    private final File input;
+    private final Registry registry;
+    private final List<Output> outputs;
+    private final File outputDir;
+    @Nullable
+    private final BuildManifest manifest;
+    @Nullable
+    private final BuildProfile profile;
+
+    InputBuild(File input, BuildSettings settings) {
+        this.input = input;
+        this.registry = settings.getRegistry();
+        this.outputs = settings.getOutputs();
+        this.outputDir = settings.getOutputDir();
+        this.manifest = settings.getManifest();
+        this.profile = settings.getProfile();
+    }
+
+    public File getInput() {
+        return input;
+    }
+
+    /**
+     * Starts a build of the input file. A new run is required for each build of the input file.
+     *
+     * @param reservation The heap reserved for the document. Resized once the document has been parsed, and released
+     * once the last output has been written.
+     * @param prefetcher The prefetcher to take the content of the input file from, if it has been read in advance.
+     * @param progress The progress to record the build and its output files with.
+     */
+    public Run start(MemoryBudget.Reservation reservation, InputPrefetcher prefetcher, BuildProgress progress) {
+        return new Run(reservation, prefetcher, progress);
+    }
+
+    /**
+     * Creates a task that runs all of the steps of the given build.
+     *
+     * <p>The task returns true if the input file was built, false if it was skipped because it is up-to-date.</p>
+     */
+    public static ForkJoinTask<Boolean> createTask(Run run) {
+        return new ParseTask(run);
+    }
+
+    private String getOptions() {
+        List<String> suffixes = new ArrayList<String>();
+        for (Output output : outputs) {
+            suffixes.add(output.getFileSuffix());
+        }
+        return Joiner.on(',').join(suffixes);
+    }
+
+    /**
+     * A single build of the input file. The steps must be called in order: {@link #isUpToDate()}, {@link #parse()},
+     * then {@link #chunk(Document, RenderableDocumentBuilder)} for each document builder and {@link
+     * #render(RenderableDocument, Output, OutputFactory)} for each output, then {@link #built()}. {@link #release()}
+     * must be called once the build has finished, whether or not it succeeded, and reports whether the input was built,
+     * up-to-date or failed.
+     */
+    public class Run {
+        private final MemoryBudget.Reservation reservation;
+        private final InputPrefetcher prefetcher;
+        private final BuildProgress progress;
+        private final RecordingOutputFactory outputFactory;
+        @Nullable
+        private byte[] content;
+        private String hash;
+        private String options;
+        private boolean upToDate;
+        private boolean built;
+        private boolean released;
+
+        private Run(MemoryBudget.Reservation reservation, InputPrefetcher prefetcher, BuildProgress progress) {
+            this.reservation = reservation;
+            this.prefetcher = prefetcher;
+            this.progress = progress;
+            this.outputFactory = new RecordingOutputFactory(progress);
+        }
+
+        public File getInput() {
+            return input;
+        }
+
+        /**
+         * Returns the outputs of the build, grouped by the document builder that each uses.
+         */
+        public Map<RenderableDocumentBuilder, List<Output>> getOutputsByBuilder() {
+            Map<RenderableDocumentBuilder, List<Output>> outputsByBuilder
+                    = new LinkedHashMap<RenderableDocumentBuilder, List<Output>>();
+            for (Output output : outputs) {
+                RenderableDocumentBuilder builder = output.getTheme().getDocumentBuilder();
+                List<Output> builderOutputs = outputsByBuilder.get(builder);
+                if (builderOutputs == null) {
+                    builderOutputs = new ArrayList<Output>();
+                    outputsByBuilder.put(builder, builderOutputs);
+                }
+                builderOutputs.add(output);
+            }
+            return outputsByBuilder;
+        }
+
+        /**
+         * Returns the factory that the build writes its output files with.
+         */
+        public OutputFactory getOutputFactory() {
+            return outputFactory;
+        }
+
+        /**
+         * Returns true if the input file is up-to-date, so does not need to be built.
+         */
+        public boolean isUpToDate() {
+            try {
+                content = prefetcher.take(InputBuild.this);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (manifest == null) {
+                return false;
+            }
+
+            try {
+                hash = content == null ? BuildManifest.hash(input) : BuildManifest.hash(content);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            options = getOptions();
+            if (manifest.isUpToDate(input, hash, options)) {
+                LOGGER.debug("Skipping {} as it is up-to-date.", input);
+                upToDate = true;
+                return true;
+            }
+            manifest.remove(input, options);
+            return false;
+        }
+
+        /**
+         * Parses the input file, using its content if it has already been read.
+         */
+        public Document parse() {
+            Parser parser = registry.createParser(input);
+            ProfilingParseListener listener = null;
+            if (profile != null) {
+                listener = new ProfilingParseListener();
+                parser.setListener(listener);
+            }
+            Document document;
+            if (content == null) {
+                document = parser.parse(input);
+            } else {
+                document = parser.parse(ByteBuffer.wrap(content), input.getPath());
+                content = null;
+            }
+            if (listener != null) {
+                listener.finishTimer.stop(input, null, "finish");
+            }
+            reservation.resize(MemoryBudget.estimate(document));
+            return document;
+        }
+
+        public RenderableDocument chunk(Document document, RenderableDocumentBuilder builder) {
+            BuildProfile.Timer timer = profile == null ? null : profile.start();
+            RenderableDocument renderableDocument = new RenderableDocument();
+            builder.buildDocument(document, renderableDocument);
+            if (timer != null) {
+                timer.stop(input, null, "chunk");
+            }
+            return renderableDocument;
+        }
+
+        /**
+         * Renders the given output, using the given factory to create its output files.
+         */
+        public void render(RenderableDocument renderableDocument, Output output, OutputFactory outputFactory) {
+            BuildProfile.Timer timer = profile == null ? null : profile.start();
+            File outputFile = output.getOutputFile(outputDir, input);
+            output.getRenderer().render(renderableDocument, output.getTheme(), outputFile, outputFactory);
+            if (timer != null) {
+                timer.stop(input, outputFile, "render");
+            }
+        }
+
+        /**
+         * Starts measuring a phase of this build, or returns null if the build is not being profiled.
+         */
+        @Nullable
+        public BuildProfile.Timer startTimer() {
+            return profile == null ? null : profile.start();
+        }
+
+        /**
+         * Records that all of the outputs have been written.
+         */
+        public void built() {
+            if (manifest != null) {
+                manifest.built(input, hash, options, outputFactory.getFiles());
+            }
+            built = true;
+        }
+
+        public synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            content = null;
+            reservation.release();
+            if (upToDate) {
+                progress.documentUpToDate();
+            } else if (built) {
+                progress.documentBuilt();
+            } else {
+                progress.documentFailed();
+            }
+        }
+    }
+
+    private static class ParseTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+
+        private ParseTask(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        protected Boolean compute() {
+            try {
+                if (run.isUpToDate()) {
+                    return false;
+                }
+                Document document = run.parse();
+                List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+                for (Map.Entry<RenderableDocumentBuilder, List<Output>> entry : run.getOutputsByBuilder().entrySet()) {
+                    tasks.add(new ChunkTask(run, document, entry.getKey(), entry.getValue()));
+                }
+                invokeAll(tasks);
+                run.built();
+                return true;
+            } finally {
+                run.release();
+            }
+        }
+    }
+
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final Document document;
+        private final RenderableDocumentBuilder builder;
+        private final List<Output> outputs;
+
+        private ChunkTask(Run run, Document document, RenderableDocumentBuilder builder, List<Output> outputs) {
+            this.run = run;
+            this.document = document;
+            this.builder = builder;
+            this.outputs = outputs;
+        }
+
+        @Override
+        protected void compute() {
+            RenderableDocument renderableDocument = run.chunk(document, builder);
+            List<RenderTask> tasks = new ArrayList<RenderTask>();
+            for (Output output : outputs) {
+                tasks.add(new RenderTask(run, renderableDocument, output));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static class RenderTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final RenderableDocument renderableDocument;
+        private final Output output;
+
+        private RenderTask(Run run, RenderableDocument renderableDocument, Output output) {
+            this.run = run;
+            this.renderableDocument = renderableDocument;
+            this.output = output;
+        }
+
+        @Override
+        protected void compute() {
+            run.render(renderableDocument, output, run.getOutputFactory());
+        }
+    }
+
+    private static class RecordingOutputFactory extends FileOutputFactory {
+        private final List<File> files = new ArrayList<File>();
+        private final BuildProgress progress;
+
+        private RecordingOutputFactory(BuildProgress progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public OutputStream create(File file) throws IOException {
+            synchronized (files) {
+                files.add(file);
+            }
+            return new CountingOutputStream(super.create(file), progress);
+        }
+
+        List<File> getFiles() {
+            synchronized (files) {
+                return new ArrayList<File>(files);
+            }
+        }
+    }
+
+    /**
+     * Records the number of bytes written to an output file with the build progress, once the file is closed. A renderer
+     * may close the file more than once, so only the first close is recorded.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final BuildProgress progress;
+        private long count;
+        private boolean closed;
+
+        private CountingOutputStream(OutputStream out, BuildProgress progress) {
+            super(out);
+            this.progress = progress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            super.close();
+            progress.pageWritten(count);
+        }
+    }
+
+    private class ProfilingParseListener implements ParseListener {
+        final BuildProfile.Timer parseTimer = profile.start();
+        BuildProfile.Timer finishTimer;
+
+        public void parsed(BuildableDocument document) {
+            parseTimer.stop(input, null, "parse");
+            finishTimer = profile.start();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package net.rubygrapefruit.docs.launcher;
+
+import com.google.common.io.Files;
+import net.rubygrapefruit.docs.model.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the content of the input files of a build into memory using a background thread, in the order that the input
+ * files will be built, so that the disk reads for later input files overlap with the parsing and rendering of earlier
+ * ones. Reads at most the given number of input files ahead, and holds at most the given number of bytes that have not
+ * yet been taken, except that a single input file that is larger than the limit is still read once nothing else is
+ * held.
+ *
+ * <p>An input file that is taken before the prefetcher has started reading it is skipped, and its build reads it
+ * directly instead.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class InputPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InputPrefetcher.class);
+    private final List<InputBuild> builds;
+    private final int depth;
+    private final long limit;
+    private final Map<InputBuild, Entry> entries = new IdentityHashMap<InputBuild, Entry>();
+    private final Object lock = new Object();
+    private int pending;
+    private long heldBytes;
+    private boolean stopped;
+    private Thread thread;
+
+    /**
+     * @param depth The maximum number of input files to read ahead. Use 0 to disable prefetching.
+     * @param limit The maximum number of prefetched bytes to hold.
+     */
+    InputPrefetcher(List<InputBuild> builds, int depth, long limit) {
+        this.builds = builds;
+        this.depth = depth;
+        this.limit = limit;
+    }
+
+    public void start() {
+        if (depth == 0 || builds.isEmpty()) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            public void run() {
+                prefetch();
+            }
+        }, "docmatic-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops prefetching and discards any content that has not been taken.
+     */
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            entries.clear();
+            heldBytes = 0;
+            lock.notifyAll();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Takes the content of the input file of the given build, waiting if it is currently being read.
+     *
+     * @return The content, or null if the input file has not been prefetched.
+     */
+    @Nullable
+    public byte[] take(InputBuild build) throws InterruptedException {
+        synchronized (lock) {
+            Entry entry = entries.get(build);
+            if (entry == null) {
+                // Not reached yet, so skip it
+                entries.put(build, new Entry(State.Taken));
+                return null;
+            }
+            while (entry.state == State.Reading) {
+                lock.wait();
+            }
+            if (entry.state != State.Ready) {
+                return null;
+            }
+            entry.state = State.Taken;
+            byte[] content = entry.content;
+            entry.content = null;
+            pending--;
+            heldBytes -= content.length;
+            lock.notifyAll();
+            return content;
+        }
+    }
+
+    /**
+     * Returns true if the content of the input file of the given build has been read and not yet taken.
+     */
+    boolean isPrefetched(InputBuild build) {
+        synchronized (lock) {
+            Entry entry = entries.get(build);
+            return entry != null && entry.state == State.Ready;
+        }
+    }
+
+    /**
+     * Reads ahead on the current thread, until all input files have been read or this prefetcher is stopped.
+     */
+    void prefetch() {
+        try {
+            for (InputBuild build : builds) {
+                long length = build.getInput().length();
+                Entry entry;
+                synchronized (lock) {
+                    while (!stopped && (pending >= depth || heldBytes > 0 && heldBytes + length > limit)) {
+                        lock.wait();
+                    }
+                    if (stopped) {
+                        return;
+                    }
+                    if (entries.containsKey(build)) {
+                        continue;
+                    }
+                    entry = new Entry(State.Reading);
+                    entries.put(build, entry);
+                    pending++;
+                    heldBytes += length;
+                }
+
+                byte[] content = null;
+                try {
+                    content = Files.toByteArray(build.getInput());
+                } catch (IOException e) {
+                    // Let the build read the input file and report the failure
+                    LOGGER.debug(String.format("Could not prefetch '%s'.", build.getInput()), e);
+                }
+
+                synchronized (lock) {
+                    heldBytes -= length;
+                    if (content == null || stopped) {
+                        entry.state = State.Failed;
+                        pending--;
+                    } else {
+                        entry.state = State.Ready;
+                        entry.content = content;
+                        heldBytes += content.length;
+                    }
+                    lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    private enum State {
+        Reading, Ready, Failed, Taken
+    }
+
+    private static class Entry {
+        State state;
+        byte[] content;
+
+        private Entry(State state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package net.rubygrapefruit.docs.launcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the input files of a build, and rebuilds each input file when it changes. Rebuilds reuse the same executor,
+ * renderers and themes, so that the JVM stays warm between rebuilds.
+ */
+class InputWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InputWatcher.class);
+    /**
+     * How long to wait for further changes before rebuilding, so that an editor that writes a file in several steps
+     * triggers a single rebuild.
+     */
+    private static final long QUIET_PERIOD_MILLIS = 100;
+    private final Map<Path, List<InputBuild>> builds = new LinkedHashMap<Path, List<InputBuild>>();
+    private final BuildExecutor executor;
+    private final Collection<BuildManifest> manifests;
+
+    InputWatcher(List<InputBuild> builds, BuildExecutor executor, Collection<BuildManifest> manifests) {
+        for (InputBuild build : builds) {
+            Path input = normalize(build.getInput().toPath());
+            List<InputBuild> inputBuilds = this.builds.get(input);
+            if (inputBuilds == null) {
+                inputBuilds = new ArrayList<InputBuild>();
+                this.builds.put(input, inputBuilds);
+            }
+            inputBuilds.add(build);
+        }
+        this.executor = executor;
+        this.manifests = manifests;
+    }
+
+    /**
+     * Watches the input files until this thread is interrupted.
+     */
+    public void watch() throws IOException {
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        try {
+            Set<Path> dirs = new HashSet<Path>();
+            for (Path input : builds.keySet()) {
+                Path dir = input.getParent();
+                if (dirs.add(dir)) {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+            LOGGER.info("Watching {} input files for changes.", builds.size());
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<Path>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    collectChanges(key, changed);
+                    key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                rebuild(changed);
+            }
+        } catch (InterruptedException e) {
+            // Finished
+        } finally {
+            watchService.close();
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Lost track of changes, so rebuild everything
+                changed.addAll(builds.keySet());
+                continue;
+            }
+            Path file = normalize(dir.resolve((Path) event.context()));
+            if (builds.containsKey(file)) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    private void rebuild(Set<Path> changed) throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<InputBuild> changedBuilds = new ArrayList<InputBuild>();
+        for (Path file : changed) {
+            for (InputBuild build : getBuilds(file)) {
+                if (build.getInput().isFile()) {
+                    changedBuilds.add(build);
+                }
+            }
+        }
+        LOGGER.info("Rebuilding {} changed input files.", changedBuilds.size());
+        executor.build(changedBuilds);
+        for (BuildManifest manifest : manifests) {
+            manifest.write();
+        }
+    }
+
+    /**
+     * Returns the builds of the given input file, in the order they were given. An input file can be built more than
+     * once, for example with different outputs.
+     */
+    List<InputBuild> getBuilds(Path file) {
+        List<InputBuild> inputBuilds = builds.get(normalize(file));
+        return inputBuilds == null ? Collections.<InputBuild>emptyList() : inputBuilds;
+    }
+
+    private static Path normalize(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+}
@@ -1,116 +1,521 @@
 package net.rubygrapefruit.docs.launcher;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Joiner;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
-import net.rubygrapefruit.docs.docbook.DocbookParser;
-import net.rubygrapefruit.docs.html.HtmlParser;
-import net.rubygrapefruit.docs.html.HtmlRenderer;
-import net.rubygrapefruit.docs.markdown.MarkdownParser;
 import net.rubygrapefruit.docs.model.Document;
-import net.rubygrapefruit.docs.parser.Parser;
-import net.rubygrapefruit.docs.pdf.PdfRenderer;
+import net.rubygrapefruit.docs.model.Nullable;
+import net.rubygrapefruit.docs.parser.ParserProvider;
 import net.rubygrapefruit.docs.renderer.Renderer;
-import net.rubygrapefruit.docs.theme.DefaultTheme;
-import net.rubygrapefruit.docs.theme.FixedWidthTheme;
-import net.rubygrapefruit.docs.theme.MinimalTheme;
+import net.rubygrapefruit.docs.renderer.RendererProvider;
+import net.rubygrapefruit.docs.renderer.SingleFileRenderer;
+import net.rubygrapefruit.docs.renderer.StreamOutputFactory;
+import net.rubygrapefruit.docs.theme.SingleChunkBuilder;
 import net.rubygrapefruit.docs.theme.Theme;
+import net.rubygrapefruit.docs.theme.ThemeProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.util.*;
 
 public class Main {
     private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
+    private static final List<String> STAGES = Arrays.asList("parse", "chunk", "render", "write");
+    private static final String STDIN_DEFAULT_THEME = "minimal";
+    private final Registry registry = Registry.load(Main.class.getClassLoader());
 
-    public static void main(String[] args) throws IOException {
-        OptionParser optionParser = new OptionParser();
-        optionParser.accepts("html", "Generate HTML 4 output");
-        optionParser.accepts("pdf", "Generate PDF output");
-        optionParser.accepts("minimal", "Use the minimal theme");
-        optionParser.accepts("default", "Use the default theme");
-        optionParser.accepts("fixed-width", "Use the fixed width theme (HTML only)");
-        optionParser.accepts("out", "The directory to generate output to").withRequiredArg().required();
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            BuildDaemon.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--client")) {
+            DaemonClient.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--train-cds")) {
+            CdsTrainer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        int exitValue = new Main().run(args, null);
+        if (exitValue != 0) {
+            System.exit(exitValue);
+        }
+    }
+
+    /**
+     * Runs a build with the given command-line arguments. The registry of this launcher, and the renderers and themes
+     * that it has created, are reused for each call, so that a long-lived process can keep them warm.
+     *
+     * @param workingDir The directory to resolve relative paths against, or null to use the current directory.
+     * @return The exit value for the build.
+     */
+    public int run(String[] args, @Nullable File workingDir) throws IOException {
+        return run(args, workingDir, false);
+    }
+
+    /**
+     * Runs a build with the given command-line arguments.
+     *
+     * @param inDaemon true when the build is run by the {@link BuildDaemon}, which does not support the options that
+     * keep the build running or read from stdin.
+     */
+    int run(String[] args, @Nullable File workingDir, boolean inDaemon) throws IOException {
+        OptionParser optionParser = createOutputOptionParser();
+        optionParser.accepts("out", "The directory to generate output to").withRequiredArg();
+        optionParser.accepts("stdin", "Read a single document in the given format (" + getParserNames()
+                + ") from stdin, and write a single output file to stdout").withRequiredArg();
+        optionParser.accepts("project", "Also build the input files listed in the given project file")
+                .withRequiredArg();
+        optionParser.accepts("threads", "The number of worker threads to use").withRequiredArg().ofType(
+                Integer.class).defaultsTo(1);
+        optionParser.accepts("pipeline", "Run the build as a pipeline of stages, with the given number of threads for "
+                + "each stage, eg parse=2,chunk=1,render=4,write=1. Unspecified stages use 1 thread").withRequiredArg();
+        optionParser.accepts("queue-size", "The maximum number of items waiting for each stage of the pipeline")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(4);
+        optionParser.accepts("heap-budget", "The estimated heap that the documents being built may use at the same "
+                + "time, eg 512m or 2g. Defaults to 3/4 of the maximum heap size").withRequiredArg();
+        optionParser.accepts("prefetch", "The number of input files to read ahead in the background")
+                .withRequiredArg().ofType(Integer.class).defaultsTo(2);
+        optionParser.accepts("prefetch-limit", "The maximum size of the input files to read ahead, eg 64m")
+                .withRequiredArg().defaultsTo("64m");
+        optionParser.accepts("incremental", "Skip input files that have not changed since they were last built");
+        optionParser.accepts("watch", "Keep running after the build, and rebuild each input file when it changes");
+        optionParser.accepts("profile", "Write the time spent in each phase of the build to the given file, as JSON")
+                .withRequiredArg();
 
         OptionSet result = null;
         try {
             result = optionParser.parse(args);
         } catch (OptionException e) {
-            System.err.println(e.getMessage());
-            System.err.println();
-            System.err.println("USAGE: docmatic [options] --out <output-dir> <input-file>...");
-            System.err.println();
-            optionParser.printHelpOn(System.err);
-            System.exit(1);
+            printUsage(optionParser, e.getMessage());
+            return 1;
+        }
+
+        if (inDaemon) {
+            // Checked against the parsed options, so that abbreviations such as --watc are rejected too
+            for (String option : Arrays.asList("watch", "stdin")) {
+                if (result.has(option)) {
+                    System.err.println(String.format("The --%s option is not supported by the docmatic daemon.",
+                            option));
+                    return 1;
+                }
+            }
+        }
+        if (result.has("stdin")) {
+            return convertStream(result);
+        }
+        if (!result.has("out")) {
+            printUsage(optionParser, "Missing required option(s) ['out']");
+            return 1;
+        }
+
+        int threads = (Integer) result.valueOf("threads");
+        if (threads < 1) {
+            System.err.println("The number of threads must be at least 1.");
+            return 1;
+        }
+
+        Map<String, Integer> stageThreads = null;
+        if (result.has("pipeline")) {
+            stageThreads = parseStageThreads(result.valueOf("pipeline").toString());
+            if (stageThreads == null) {
+                System.err.println(String.format("Invalid pipeline '%s'. Expected a comma-separated list of "
+                        + "<stage>=<threads>, where <stage> is one of %s.", result.valueOf("pipeline"),
+                        Joiner.on(", ").join(STAGES)));
+                return 1;
+            }
+        }
+        int queueSize = (Integer) result.valueOf("queue-size");
+        if (queueSize < 1) {
+            System.err.println("The queue size must be at least 1.");
+            return 1;
         }
 
+        MemoryBudget memoryBudget = MemoryBudget.ofMaxHeap(0.75);
+        if (result.has("heap-budget")) {
+            long budget = parseSize(result.valueOf("heap-budget").toString());
+            if (budget <= 0) {
+                System.err.println(String.format("Invalid heap budget '%s'.", result.valueOf("heap-budget")));
+                return 1;
+            }
+            memoryBudget = new MemoryBudget(budget);
+        }
+
+        int prefetchDepth = (Integer) result.valueOf("prefetch");
+        long prefetchLimit = parseSize(result.valueOf("prefetch-limit").toString());
+        if (prefetchDepth < 0) {
+            System.err.println("The prefetch depth must not be negative.");
+            return 1;
+        }
+        if (prefetchLimit < 0) {
+            System.err.println(String.format("Invalid prefetch limit '%s'.", result.valueOf("prefetch-limit")));
+            return 1;
+        }
+
+        BuildProfile profile = null;
+        if (result.has("profile")) {
+            profile = new BuildProfile();
+        }
+
+        Books books = new Books(result.has("incremental"), profile);
         List<File> inputs = new ArrayList<File>();
         for (String s : result.nonOptionArguments()) {
-            inputs.add(new File(s));
+            inputs.add(resolve(workingDir, s));
         }
+        File outputDir = resolve(workingDir, result.valueOf("out").toString());
+        List<RendererProvider> formats = selectFormats(result);
+        List<ThemeProvider> themes = selectThemes(result);
+        books.add(inputs, formats, themes, outputDir);
 
-        boolean html = result.has("html");
-        boolean pdf = result.has("pdf");
+        if (result.has("project")) {
+            File projectFile = resolve(workingDir, result.valueOf("project").toString());
+            if (!readProject(projectFile, formats, themes, outputDir, books)) {
+                return 1;
+            }
+        }
 
-        if (!html && !pdf) {
-            LOGGER.warn("No output formats specified. Generating HTML.");
-            html = true;
+        if (books.usedDefaultFormats) {
+            for (RendererProvider rendererProvider : getDefaultFormats()) {
+                LOGGER.warn("No output formats specified. Generating {}.", rendererProvider.getName().toUpperCase());
+            }
         }
 
-        boolean minimalOut = result.has("minimal");
-        boolean defaultOut = result.has("default");
-        boolean fixedWidthOut = result.has("fixed-width");
+        BuildPipeline pipeline = null;
+        if (stageThreads != null) {
+            pipeline = new BuildPipeline(stageThreads.get("parse"), stageThreads.get("chunk"), stageThreads.get(
+                    "render"), stageThreads.get("write"), queueSize);
+        }
+        BuildExecutor executor = new BuildExecutor(threads, pipeline, memoryBudget, prefetchDepth, prefetchLimit);
+        int failures = executor.build(books.builds);
+        for (BuildManifest manifest : books.manifests.values()) {
+            manifest.write();
+        }
+        if (profile != null) {
+            profile.write(resolve(workingDir, result.valueOf("profile").toString()));
+        }
+        if (result.has("watch")) {
+            new InputWatcher(books.builds, executor, books.manifests.values()).watch();
+        }
+        executor.stop();
+        return failures > 0 ? 1 : 0;
+    }
 
-        if (!minimalOut && !defaultOut && !fixedWidthOut) {
-            defaultOut = true;
+    /**
+     * Parses the number of threads for each stage of the pipeline, in the form {@code <stage>=<threads>,...}.
+     *
+     * @return The number of threads for each stage, or null if the value is invalid.
+     */
+    @Nullable
+    private static Map<String, Integer> parseStageThreads(String value) {
+        Map<String, Integer> stageThreads = new HashMap<String, Integer>();
+        for (String stage : STAGES) {
+            stageThreads.put(stage, 1);
         }
+        for (String entry : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+            int separator = entry.indexOf('=');
+            if (separator < 0 || !stageThreads.containsKey(entry.substring(0, separator))) {
+                return null;
+            }
+            int threads;
+            try {
+                threads = Integer.parseInt(entry.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (threads < 1) {
+                return null;
+            }
+            stageThreads.put(entry.substring(0, separator), threads);
+        }
+        return stageThreads;
+    }
 
-        File outputDir = new File(result.valueOf("out").toString());
+    /**
+     * Parses a size in bytes, with an optional k, m or g suffix.
+     *
+     * @return The size, or -1 if the size is invalid.
+     */
+    private static long parseSize(String value) {
+        String digits = value.toLowerCase();
+        long multiplier = 1;
+        if (digits.endsWith("k")) {
+            multiplier = 1024;
+        } else if (digits.endsWith("m")) {
+            multiplier = 1024 * 1024;
+        } else if (digits.endsWith("g")) {
+            multiplier = 1024 * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            digits = digits.substring(0, digits.length() - 1);
+        }
+        try {
+            return Long.parseLong(digits) * multiplier;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void printUsage(OptionParser optionParser, String message) throws IOException {
+        System.err.println(message);
+        System.err.println();
+        System.err.println("USAGE: docmatic [options] --out <output-dir> <input-file>...");
+        System.err.println("       docmatic [options] --out <output-dir> --project <project-file>");
+        System.err.println("       docmatic [options] --stdin <input-format>");
+        System.err.println("       docmatic --daemon [--port <port>]");
+        System.err.println("       docmatic --train-cds [--archive <file>] [--iterations <n>]");
+        System.err.println("       docmatic --client [--port <port>] [options] --out <output-dir> <input-file>...");
+        System.err.println();
+        optionParser.printHelpOn(System.err);
+    }
 
-        Renderer htmlRenderer = new HtmlRenderer();
-        Renderer pdfRenderer = new PdfRenderer();
-        Theme minimalTheme = new MinimalTheme();
-        Theme defaultTheme = new DefaultTheme();
-        Theme fixedWidthTheme = new FixedWidthTheme();
-        for (File input : inputs) {
-            Parser parser;
-            if (input.getName().endsWith(".xml")) {
-                parser = new DocbookParser();
-            } else if (input.getName().endsWith(".html")) {
-                parser = new HtmlParser();
-            } else {
-                parser = new MarkdownParser();
+    private String getParserNames() {
+        List<String> names = new ArrayList<String>();
+        for (ParserProvider parserProvider : registry.getParserProviders()) {
+            names.add(parserProvider.getName().toLowerCase());
+        }
+        return Joiner.on(", ").join(names);
+    }
+
+    /**
+     * Reads a single document from stdin and writes a single output file to stdout, without using the file system.
+     * Uses the minimal theme when no theme is given. Fails before writing any output if the requested output could
+     * generate more than one file.
+     */
+    private int convertStream(OptionSet result) throws IOException {
+        if (!result.nonOptionArguments().isEmpty() || result.has("project") || result.has("watch")
+                || result.has("incremental")) {
+            System.err.println("The --stdin option cannot be used with input files, --project, --watch or "
+                    + "--incremental.");
+            return 1;
+        }
+
+        String format = result.valueOf("stdin").toString();
+        ParserProvider parserProvider = null;
+        for (ParserProvider candidate : registry.getParserProviders()) {
+            if (candidate.getName().equalsIgnoreCase(format)) {
+                parserProvider = candidate;
             }
-            Document document = parser.parse(input);
+        }
+        if (parserProvider == null) {
+            System.err.println(String.format("Unknown input format '%s'. Supported formats are: %s.", format,
+                    getParserNames()));
+            return 1;
+        }
 
-            if (html) {
-                if (minimalOut) {
-                    File htmlOutput = new File(outputDir, input.getName() + ".minimal.html");
-                    htmlRenderer.render(document, minimalTheme, htmlOutput);
-                }
-                if (fixedWidthOut) {
-                    File htmlOutput = new File(outputDir, input.getName() + ".fixed.html");
-                    htmlRenderer.render(document, fixedWidthTheme, htmlOutput);
-                }
-                if (defaultOut) {
-                    File htmlOutput = new File(outputDir, input.getName() + ".html");
-                    htmlRenderer.render(document, defaultTheme, htmlOutput);
+        List<RendererProvider> formats = selectFormats(result);
+        if (formats.isEmpty()) {
+            formats = getDefaultFormats();
+        }
+        List<ThemeProvider> themes = selectThemes(result);
+        if (themes.isEmpty()) {
+            // The default themes generate a file for each chunk, which cannot be written to stdout
+            for (ThemeProvider themeProvider : registry.getThemeProviders()) {
+                if (themeProvider.getName().equals(STDIN_DEFAULT_THEME)) {
+                    themes.add(themeProvider);
                 }
             }
+        }
+        if (formats.size() != 1 || themes.size() != 1 || !themes.get(0).supports(formats.get(0).getName())) {
+            System.err.println("The --stdin option requires a single output format and a single theme that supports "
+                    + "it.");
+            return 1;
+        }
+        Output output = new Output(registry, formats.get(0), themes.get(0));
+        if (!(output.getRenderer() instanceof SingleFileRenderer)
+                && !(output.getTheme().getDocumentBuilder() instanceof SingleChunkBuilder)) {
+            System.err.println(String.format("The %s theme generates more than one %s file, which cannot be written "
+                    + "to stdout. Use the --%s theme instead.", themes.get(0).getName(), formats.get(0).getName()
+                    .toUpperCase(), STDIN_DEFAULT_THEME));
+            return 1;
+        }
+
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(System.in, Charsets.UTF_8));
+            Document document = parserProvider.createParser().parse(reader, "stdin");
+            Theme theme = output.getTheme();
+            output.getRenderer().render(Renderer.build(document, theme), theme, new File("stdout"),
+                    new StreamOutputFactory(System.out));
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not convert stdin.", e);
+            return 1;
+        } finally {
+            System.out.flush();
+        }
+        return System.out.checkError() ? 1 : 0;
+    }
+
+    /**
+     * Reads a project file. Each line of the project file lists one or more input files, optionally preceded by the
+     * output format, theme and --out options to use for those input files. Options that are not given default to those
+     * given on the command-line. Relative paths are resolved against the directory containing the project file. Blank
+     * lines and lines starting with '#' are ignored.
+     *
+     * @return true if the project file was read, false if it is invalid.
+     */
+    private boolean readProject(File projectFile, List<RendererProvider> defaultFormats,
+                                List<ThemeProvider> defaultThemes, File defaultOutputDir, Books books)
+            throws IOException {
+        if (!projectFile.isFile()) {
+            System.err.println(String.format("Project file '%s' does not exist.", projectFile));
+            return false;
+        }
+        File projectDir = projectFile.getAbsoluteFile().getParentFile();
+        OptionParser optionParser = createOutputOptionParser();
+        optionParser.accepts("out", "The directory to generate output to").withRequiredArg();
+        List<String> lines = Files.readLines(projectFile, Charsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> args = Lists.newArrayList(Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings().split(
+                    line));
+            OptionSet result;
+            try {
+                result = optionParser.parse(args.toArray(new String[args.size()]));
+            } catch (OptionException e) {
+                System.err.println(String.format("Could not parse line %s of project file '%s': %s", i + 1,
+                        projectFile, e.getMessage()));
+                return false;
+            }
+
+            List<File> inputs = new ArrayList<File>();
+            for (String s : result.nonOptionArguments()) {
+                inputs.add(resolve(projectDir, s));
+            }
+            File outputDir = result.has("out") ? resolve(projectDir, result.valueOf("out").toString())
+                    : defaultOutputDir;
+            List<RendererProvider> formats = selectFormats(result);
+            List<ThemeProvider> themes = selectThemes(result);
+            books.add(inputs, formats.isEmpty() ? defaultFormats : formats, themes.isEmpty() ? defaultThemes : themes,
+                    outputDir);
+        }
+        return true;
+    }
+
+    /**
+     * Creates a parser for the options that select the output formats and themes.
+     */
+    private OptionParser createOutputOptionParser() {
+        OptionParser optionParser = new OptionParser();
+        for (RendererProvider rendererProvider : registry.getRendererProviders()) {
+            optionParser.accepts(rendererProvider.getName(), rendererProvider.getDescription());
+        }
+        for (ThemeProvider themeProvider : registry.getThemeProviders()) {
+            optionParser.accepts(themeProvider.getName(), themeProvider.getDescription());
+        }
+        return optionParser;
+    }
+
+    private List<RendererProvider> selectFormats(OptionSet result) {
+        List<RendererProvider> formats = new ArrayList<RendererProvider>();
+        for (RendererProvider rendererProvider : registry.getRendererProviders()) {
+            if (result.has(rendererProvider.getName())) {
+                formats.add(rendererProvider);
+            }
+        }
+        return formats;
+    }
+
+    private List<RendererProvider> getDefaultFormats() {
+        List<RendererProvider> formats = new ArrayList<RendererProvider>();
+        for (RendererProvider rendererProvider : registry.getRendererProviders()) {
+            if (rendererProvider.isDefault()) {
+                formats.add(rendererProvider);
+            }
+        }
+        return formats;
+    }
+
+    private List<ThemeProvider> selectThemes(OptionSet result) {
+        List<ThemeProvider> themes = new ArrayList<ThemeProvider>();
+        for (ThemeProvider themeProvider : registry.getThemeProviders()) {
+            if (result.has(themeProvider.getName())) {
+                themes.add(themeProvider);
+            }
+        }
+        return themes;
+    }
+
+    private List<ThemeProvider> getDefaultThemes() {
+        List<ThemeProvider> themes = new ArrayList<ThemeProvider>();
+        for (ThemeProvider themeProvider : registry.getThemeProviders()) {
+            if (themeProvider.isDefault()) {
+                themes.add(themeProvider);
+            }
+        }
+        return themes;
+    }
+
+    /**
+     * The input builds of a launcher run, along with the manifest for each output directory.
+     */
+    private class Books {
+        final List<InputBuild> builds = new ArrayList<InputBuild>();
+        final Map<File, BuildManifest> manifests = new LinkedHashMap<File, BuildManifest>();
+        final boolean incremental;
+        @Nullable
+        final BuildProfile profile;
+        boolean usedDefaultFormats;
 
-            if (pdf) {
-                if (minimalOut) {
-                    File pdfOutput = new File(outputDir, input.getName() + ".minimal.pdf");
-                    pdfRenderer.render(document, minimalTheme, pdfOutput);
+        Books(boolean incremental, @Nullable BuildProfile profile) {
+            this.incremental = incremental;
+            this.profile = profile;
+        }
+
+        /**
+         * Adds builds for the given input files. Uses the default formats or themes when none are given.
+         */
+        void add(List<File> inputs, List<RendererProvider> formats, List<ThemeProvider> themes, File outputDir) {
+            if (inputs.isEmpty()) {
+                return;
+            }
+            if (formats.isEmpty()) {
+                formats = getDefaultFormats();
+                usedDefaultFormats = true;
+            }
+            if (themes.isEmpty()) {
+                themes = getDefaultThemes();
+            }
+
+            List<Output> outputs = new ArrayList<Output>();
+            for (RendererProvider format : formats) {
+                for (ThemeProvider theme : themes) {
+                    if (theme.supports(format.getName())) {
+                        outputs.add(new Output(registry, format, theme));
+                    }
                 }
-                if (defaultOut) {
-                    File pdfOutput = new File(outputDir, input.getName() + ".pdf");
-                    pdfRenderer.render(document, defaultTheme, pdfOutput);
+            }
+
+            BuildManifest manifest = null;
+            if (incremental) {
+                manifest = manifests.get(outputDir);
+                if (manifest == null) {
+                    manifest = BuildManifest.load(outputDir);
+                    manifests.put(outputDir, manifest);
                 }
             }
+
+            BuildSettings settings = new BuildSettings(registry, outputs, outputDir, manifest, profile);
+            for (File input : inputs) {
+                builds.add(new InputBuild(input, settings));
+            }
+        }
+    }
+
+    private static File resolve(@Nullable File workingDir, String path) {
+        File file = new File(path);
+        if (workingDir == null || file.isAbsolute()) {
+            return file;
         }
+        return new File(workingDir, path);
     }
 }
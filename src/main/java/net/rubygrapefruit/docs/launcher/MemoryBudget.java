@@ -0,0 +1,138 @@
+package net.rubygrapefruit.docs.launcher;
+
+import net.rubygrapefruit.docs.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Limits the estimated heap used by the documents that are being built at the same time. An input file is admitted
+ * only while the total estimated footprint of the documents in flight stays under the budget. A document that is
+ * larger than the whole budget is admitted once nothing else is in flight, so that it can still be built.
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class MemoryBudget {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBudget.class);
+    /**
+     * The approximate heap retained by a parsed document, for each byte of its input file.
+     */
+    static final long BYTES_PER_INPUT_BYTE = 16;
+    /**
+     * The approximate heap retained by each element and text node of a parsed document.
+     */
+    static final long BYTES_PER_NODE = 100;
+    private final long budget;
+    private long used;
+
+    MemoryBudget(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Creates a budget that uses the given fraction of the maximum heap size.
+     */
+    public static MemoryBudget ofMaxHeap(double fraction) {
+        return new MemoryBudget((long) (Runtime.getRuntime().maxMemory() * fraction));
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Estimates the footprint of the document for the given input file, before it has been parsed.
+     */
+    public static long estimate(File input) {
+        return input.length() * BYTES_PER_INPUT_BYTE;
+    }
+
+    /**
+     * Estimates the footprint of the given parsed document, based on the number of nodes it contains.
+     */
+    public static long estimate(Document document) {
+        return countNodes(document) * BYTES_PER_NODE;
+    }
+
+    private static long countNodes(Object node) {
+        long count = 1;
+        if (node instanceof Component) {
+            count += countNodes(((Component) node).getTitle());
+        }
+        if (node instanceof Example) {
+            count += countNodes(((Example) node).getTitle());
+        }
+        if (node instanceof BlockContainer) {
+            for (Block block : ((BlockContainer) node).getContents()) {
+                count += countNodes(block);
+            }
+        }
+        if (node instanceof List) {
+            for (ListItem item : ((List) node).getItems()) {
+                count += countNodes(item);
+            }
+        }
+        if (node instanceof InlineContainer) {
+            for (Inline inline : ((InlineContainer) node).getContents()) {
+                count += countNodes(inline);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reserves the given number of bytes, blocking until they fit within the budget.
+     */
+    public Reservation acquire(long bytes) throws InterruptedException {
+        synchronized (this) {
+            if (used > 0 && used + bytes > budget) {
+                LOGGER.debug("Waiting for {} bytes of the heap budget, {} of {} bytes are in use.", new Object[]{bytes,
+                        used, budget});
+                while (used > 0 && used + bytes > budget) {
+                    wait();
+                }
+            }
+            used += bytes;
+        }
+        return new Reservation(bytes);
+    }
+
+    private synchronized void adjust(long delta) {
+        used += delta;
+        if (delta < 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Some of the budget, held by a document while it is built.
+     */
+    public class Reservation {
+        private long bytes;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Replaces the estimate for the document with a more accurate one. Does not block, so the total may exceed the
+         * budget until the document is released.
+         */
+        public void resize(long newBytes) {
+            long delta;
+            synchronized (this) {
+                delta = newBytes - bytes;
+                bytes = newBytes;
+            }
+            adjust(delta);
+        }
+
+        /**
+         * Returns this reservation to the budget. Has no effect if already released.
+         */
+        public void release() {
+            resize(0);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.rubygrapefruit.docs.launcher;
+
+import net.rubygrapefruit.docs.renderer.Renderer;
+import net.rubygrapefruit.docs.renderer.RendererProvider;
+import net.rubygrapefruit.docs.theme.Theme;
+import net.rubygrapefruit.docs.theme.ThemeProvider;
+
+import java.io.File;
+
+/**
+ * An output to generate for each input file: an output format and a theme. The renderer and theme are created when
+ * first used.
+ */
+class Output {
+    private final Registry registry;
+    private final RendererProvider rendererProvider;
+    private final ThemeProvider themeProvider;
+
+    Output(Registry registry, RendererProvider rendererProvider, ThemeProvider themeProvider) {
+        this.registry = registry;
+        this.rendererProvider = rendererProvider;
+        this.themeProvider = themeProvider;
+    }
+
+    public Renderer getRenderer() {
+        return registry.getRenderer(rendererProvider);
+    }
+
+    public Theme getTheme() {
+        return registry.getTheme(themeProvider);
+    }
+
+    public String getFileSuffix() {
+        if (themeProvider.getFileSuffix().isEmpty()) {
+            return "." + rendererProvider.getFileExtension();
+        }
+        return "." + themeProvider.getFileSuffix() + "." + rendererProvider.getFileExtension();
+    }
+
+    public File getOutputFile(File outputDir, File input) {
+        return new File(outputDir, input.getName() + getFileSuffix());
+    }
+}
@@ -0,0 +1,108 @@
+package net.rubygrapefruit.docs.launcher;
+
+import net.rubygrapefruit.docs.parser.Parser;
+import net.rubygrapefruit.docs.parser.ParserProvider;
+import net.rubygrapefruit.docs.renderer.Renderer;
+import net.rubygrapefruit.docs.renderer.RendererProvider;
+import net.rubygrapefruit.docs.theme.Theme;
+import net.rubygrapefruit.docs.theme.ThemeProvider;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * The parsers, renderers and themes available to the launcher, discovered using {@link ServiceLoader}. Renderers and
+ * themes are created when they are first used, and then reused, so that an implementation is loaded only when it is
+ * actually needed.
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class Registry {
+    private final List<ParserProvider> parserProviders;
+    private final List<RendererProvider> rendererProviders;
+    private final List<ThemeProvider> themeProviders;
+    private final Map<RendererProvider, Renderer> renderers = new HashMap<RendererProvider, Renderer>();
+    private final Map<ThemeProvider, Theme> themes = new HashMap<ThemeProvider, Theme>();
+
+    Registry(List<ParserProvider> parserProviders, List<RendererProvider> rendererProviders,
+             List<ThemeProvider> themeProviders) {
+        this.parserProviders = parserProviders;
+        this.rendererProviders = rendererProviders;
+        this.themeProviders = themeProviders;
+    }
+
+    /**
+     * Discovers the providers visible to the given ClassLoader.
+     */
+    public static Registry load(ClassLoader classLoader) {
+        return new Registry(load(ParserProvider.class, classLoader), load(RendererProvider.class, classLoader), load(
+                ThemeProvider.class, classLoader));
+    }
+
+    private static <T> List<T> load(Class<T> type, ClassLoader classLoader) {
+        List<T> providers = new ArrayList<T>();
+        for (T provider : ServiceLoader.load(type, classLoader)) {
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    public List<ParserProvider> getParserProviders() {
+        return parserProviders;
+    }
+
+    public List<RendererProvider> getRendererProviders() {
+        return rendererProviders;
+    }
+
+    public List<ThemeProvider> getThemeProviders() {
+        return themeProviders;
+    }
+
+    /**
+     * Creates a parser for the given input file, based on its name.
+     */
+    public Parser createParser(File input) {
+        ParserProvider defaultProvider = null;
+        for (ParserProvider provider : parserProviders) {
+            if (provider.canParse(input.getName())) {
+                return provider.createParser();
+            }
+            if (defaultProvider == null && provider.isDefault()) {
+                defaultProvider = provider;
+            }
+        }
+        if (defaultProvider == null) {
+            throw new IllegalArgumentException(String.format("No parser available for '%s'.", input));
+        }
+        return defaultProvider.createParser();
+    }
+
+    /**
+     * Returns the renderer for the given provider, creating it if this is the first time it has been used.
+     */
+    public Renderer getRenderer(RendererProvider provider) {
+        synchronized (renderers) {
+            Renderer renderer = renderers.get(provider);
+            if (renderer == null) {
+                renderer = provider.createRenderer();
+                renderers.put(provider, renderer);
+            }
+            return renderer;
+        }
+    }
+
+    /**
+     * Returns the theme for the given provider, creating it if this is the first time it has been used.
+     */
+    public Theme getTheme(ThemeProvider provider) {
+        synchronized (themes) {
+            Theme theme = themes.get(provider);
+            if (theme == null) {
+                theme = provider.createTheme();
+                themes.put(provider, theme);
+            }
+            return theme;
+        }
+    }
+}
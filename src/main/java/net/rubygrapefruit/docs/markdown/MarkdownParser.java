@@ -4,18 +4,14 @@ import net.rubygrapefruit.docs.model.buildable.*;
 import net.rubygrapefruit.docs.parser.*;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * Builds a document for some Markdown input.
  */
-public class MarkdownParser extends Parser {
+public class MarkdownParser extends CharStreamParser {
     @Override
-    protected void doParse(Reader input, String fileName, BuildableDocument document) throws Exception {
+    protected void doParse(CharStream input, String fileName, BuildableDocument document) throws Exception {
         Lexer lexer = new Lexer(input);
         LineParser parser = new LineParser(lexer);
         while (parser.peek().type != LineType.Finish) {
@@ -393,16 +389,56 @@ public class MarkdownParser extends Parser {
         static final Production<CharStream> star = Productions.match('*');
         static final Production<CharStream> numberedListItem = new NumberedItemProduction();
 
-        private final Buffer buffer;
+        /**
+         * The token types that can appear at the start of a line, in order of precedence.
+         */
+        @SuppressWarnings("unchecked")
+        static final Alternatives<Production<CharStream>> startOfLineTokens = new Alternatives<Production<CharStream>>(
+                Arrays.<Production<CharStream>>asList(endOfLine, numberedListItem, equalsToken, plus, dashes, backtick,
+                        underscore, star, whiteSpace, word));
+
+        /**
+         * The token types that can appear elsewhere, in order of precedence.
+         */
+        @SuppressWarnings("unchecked")
+        static final Alternatives<Production<CharStream>> tokens = new Alternatives<Production<CharStream>>(
+                Arrays.<Production<CharStream>>asList(endOfLine, plus, dashes, backtick, underscore, star, whiteSpace,
+                        word));
+
+        /**
+         * Single character ASCII tokens, such as punctuation and single spaces, for each token type. These are shared,
+         * rather than allocating a token and value for each occurrence.
+         */
+        static final Map<Production<CharStream>, Token[]> singleCharTokens
+                = new IdentityHashMap<Production<CharStream>, Token[]>();
+
+        static {
+            @SuppressWarnings("unchecked")
+            List<Production<CharStream>> types = Arrays.asList(endOfLine, word, whiteSpace, equalsToken, dashes, plus,
+                    dash, backtick, underscore, star, numberedListItem);
+            for (Production<CharStream> type : types) {
+                Token[] tokens = new Token[128];
+                for (char ch = 0; ch < tokens.length; ch++) {
+                    tokens[ch] = new Token(type, String.valueOf(ch));
+                }
+                singleCharTokens.put(type, tokens);
+            }
+        }
+
+        private final CharStream buffer;
         private boolean atStartOfLine;
         private Production<CharStream> type;
 
-        private Lexer(Reader input) {
-            this.buffer = new Buffer(input);
+        private Lexer(CharStream input) {
+            this.buffer = input;
         }
 
         Token getToken() {
-            return new Token(type, buffer.getValue());
+            CharSequence value = buffer.getSlice();
+            if (value.length() != 1 || value.charAt(0) >= 128) {
+                return new Token(type, value.toString());
+            }
+            return singleCharTokens.get(type)[value.charAt(0)];
         }
 
         Production<CharStream> getType() {
@@ -416,49 +452,30 @@ public class MarkdownParser extends Parser {
         }
 
         Production<CharStream> scanNext() {
-            if (buffer.consume(endOfLine)) {
-                return endOfLine;
-            }
-            if (atStartOfLine && buffer.consume(numberedListItem)) {
-                return numberedListItem;
-            }
-            if (atStartOfLine && buffer.consume(equalsToken)) {
-                return equalsToken;
-            }
-            if (buffer.consume(plus)) {
-                return plus;
-            }
-            if (buffer.consume(dashes)) {
-                return dashes;
-            }
-            if (buffer.consume(backtick)) {
-                return backtick;
-            }
-            if (buffer.consume(underscore)) {
-                return underscore;
-            }
-            if (buffer.consume(star)) {
-                return star;
-            }
-            if (buffer.consume(whiteSpace)) {
-                return whiteSpace;
-            }
-            if (buffer.consume(word)) {
-                return word;
-            }
-            return null;
+            return atStartOfLine ? startOfLineTokens.consumeFirst(buffer) : tokens.consumeFirst(buffer);
         }
     }
 
-    private static class EndOfLineProduction implements Production<CharStream> {
+    private static class EndOfLineProduction implements PredictiveProduction<CharStream> {
+        static final CharClass firstChars = CharClass.anyOf('\r', '\n');
+
+        public CharClass getFirstChars() {
+            return firstChars;
+        }
+
         public void match(CharStream charStream) {
             charStream.consume('\r');
             charStream.consume('\n');
         }
     }
 
-    private static class NumberedItemProduction implements Production<CharStream> {
-        private final Production<CharStream> digits = Productions.matchAtLeastOnce(Productions.matchFromRange('0', '9'));
+    private static class NumberedItemProduction implements PredictiveProduction<CharStream> {
+        private final PredictiveProduction<CharStream> digits
+                = Productions.matchAtLeastOnce(Productions.matchFromRange('0', '9'));
+
+        public CharClass getFirstChars() {
+            return digits.getFirstChars();
+        }
 
         public void match(CharStream charStream) {
             if (!charStream.consume(digits)) {
@@ -470,10 +487,15 @@ public class MarkdownParser extends Parser {
         }
     }
 
-    private static class WordProduction implements Production<CharStream> {
+    private static class WordProduction implements PredictiveProduction<CharStream> {
+        static final CharClass wordChars = CharClass.anyExcept(' ', '\t', '\r', '\n', '`', '_', '*');
+
+        public CharClass getFirstChars() {
+            return wordChars;
+        }
+
         public void match(CharStream charStream) {
-            while (charStream.consumeAnyExcept(' ', '\t', '\r', '\n', '`', '_', '*')) {
-            }
+            charStream.consumeRun(wordChars);
         }
     }
 }
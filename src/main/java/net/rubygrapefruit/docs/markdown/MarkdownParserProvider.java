@@ -0,0 +1,25 @@
+package net.rubygrapefruit.docs.markdown;
+
+import net.rubygrapefruit.docs.parser.Parser;
+import net.rubygrapefruit.docs.parser.ParserProvider;
+
+public class MarkdownParserProvider implements ParserProvider {
+    public String getName() {
+        return "Markdown";
+    }
+
+    public boolean canParse(String fileName) {
+        return fileName.endsWith(".md");
+    }
+
+    /**
+     * Markdown is the fallback for files with an unrecognised extension.
+     */
+    public boolean isDefault() {
+        return true;
+    }
+
+    public Parser createParser() {
+        return new MarkdownParser();
+    }
+}
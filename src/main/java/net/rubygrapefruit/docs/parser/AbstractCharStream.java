@@ -0,0 +1,477 @@
+package net.rubygrapefruit.docs.parser;
+
+import java.util.BitSet;
+
+/**
+ * The matching, marks and line tracking shared by the {@link CharStream} implementations. A subclass provides the
+ * characters: it reads the character at the cursor position, advances the cursor past it, and extracts the value
+ * between two positions. Positions are opaque to this class, except that a later position is greater than an earlier
+ * one.
+ *
+ * <p>The marks are held in an array of offsets, so that starting a production does not allocate. Lines and columns are
+ * not tracked as characters are consumed. Instead, the start of each line is recorded in an index when a position is
+ * first asked for, or when the subclass discards characters, and the line and column of a position are worked out from
+ * this index. Discarding characters therefore scans each of them once, and also drops the line starts that can no longer
+ * be asked for, so the index holds only the lines from the earliest retained position onwards.</p>
+ */
+public abstract class AbstractCharStream implements CharStream, MarkableStream {
+    private final Slice slice = new Slice();
+    private MemoTable memoTable;
+    private long discarded;
+    private int[] markOffsets;
+    private int markCount;
+    protected int firstMark = 0;
+    protected int cursor = 0;
+    private int startProduction = 0;
+    private int endProduction = 0;
+
+    // The line index: the absolute position of the start of each line after the first, and which of these follow a
+    // CR LF pair. Characters before the indexed position have been scanned for line separators. The line starts before
+    // the first entry have been dropped, and counted in droppedLines.
+    private long[] lineStarts;
+    private BitSet crlfLineStarts = new BitSet();
+    private int lineCount;
+    private int droppedLines;
+    private long indexed;
+    private boolean pendingCr;
+
+    // The absolute positions of the most recently matched production, and their lines and columns once located
+    private long startPosition = -1;
+    private long endPosition = -1;
+    private boolean located;
+    private int startLine;
+    private int startColumn;
+    private int endLine;
+    private int endColumn;
+
+    protected AbstractCharStream() {
+        this(new int[16]);
+    }
+
+    AbstractCharStream(int[] markOffsets) {
+        this.markOffsets = markOffsets;
+    }
+
+    public abstract int peek();
+
+    /**
+     * Moves the cursor past the character at the cursor position. Called only once {@link #peek()} has returned a
+     * character.
+     */
+    protected abstract void advance();
+
+    /**
+     * Returns the characters between the given positions.
+     */
+    protected abstract String getValue(int start, int end);
+
+    /**
+     * Moves the cursor past as many characters from the given class as possible, and returns the number of characters
+     * skipped. The default implementation reads each character using {@link #peek()}, and a subclass can override this
+     * method to scan its characters in place.
+     */
+    protected int skip(CharClass chars) {
+        int count = 0;
+        while (chars.contains(peek())) {
+            advance();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the character at the given position. Used by the view returned by {@link #getSlice(int, int)}, and to
+     * find the line separators. A subclass whose positions do not map one-to-one to characters must still return '\r'
+     * and '\n' at their positions.
+     */
+    protected abstract char charAt(int position);
+
+    /**
+     * Returns a view of the characters between the given positions. The default implementation returns a view that
+     * reads each character using {@link #charAt(int)}, so the subclass must override this method if its positions do
+     * not map one-to-one to characters.
+     */
+    protected CharSequence getSlice(int start, int end) {
+        slice.set(start, end);
+        return slice;
+    }
+
+    /**
+     * Returns the number of characters between the given positions. The start position may be before the characters
+     * the subclass still holds, when it has discarded them. The default implementation returns the difference between
+     * the positions, so the subclass must override this method if its positions do not map one-to-one to characters.
+     */
+    protected int countChars(int start, int end) {
+        return end - start;
+    }
+
+    /**
+     * Called when the array of mark offsets is replaced by a larger one. The default implementation does nothing.
+     */
+    protected void marksGrown(int[] markOffsets) {
+    }
+
+    /**
+     * Moves the cursor and each mark back by the given amount, when the subclass discards the characters before the
+     * earliest mark. Must be called while the discarded characters are still available from {@link #charAt(int)}.
+     */
+    protected void retarget(int offset) {
+        index(discarded + offset);
+        // Only the most recently matched production can still be located
+        dropLinesBefore(startPosition < 0 ? discarded + offset : Math.min(startPosition, discarded + offset));
+        discarded += offset;
+        cursor -= offset;
+        for (int i = 0; i < markCount; i++) {
+            markOffsets[i] -= offset;
+        }
+        firstMark -= offset;
+    }
+
+    public String getValue() {
+        return getValue(startProduction, endProduction);
+    }
+
+    public CharSequence getSlice() {
+        return getSlice(startProduction, endProduction);
+    }
+
+    public int getEndColumn() {
+        locate();
+        return endColumn;
+    }
+
+    public int getStartColumn() {
+        locate();
+        return startColumn;
+    }
+
+    public int getStartLine() {
+        locate();
+        return startLine;
+    }
+
+    public int getEndLine() {
+        locate();
+        return endLine;
+    }
+
+    private void locate() {
+        if (located) {
+            return;
+        }
+        located = true;
+        if (startPosition < 0) {
+            startLine = startColumn = endLine = endColumn = -1;
+            return;
+        }
+        long start = startPosition;
+        long end = endPosition;
+        startLine = lineOf(start);
+        startColumn = columnOf(start);
+        endLine = lineOf(end);
+        endColumn = columnOf(end) - 1;
+    }
+
+    /**
+     * Returns the line of the given absolute position.
+     */
+    private int lineOf(long position) {
+        index(position);
+        if (isUnresolvedCr(position) && nextCharAt(position) != '\n') {
+            // A CR that is not followed by LF ends the line
+            return droppedLines + lineCount + 2;
+        }
+        return droppedLines + lineIndexOf(position) + 2;
+    }
+
+    /**
+     * Returns the column of the given absolute position.
+     */
+    private int columnOf(long position) {
+        index(position);
+        boolean betweenCrLf = false;
+        if (isUnresolvedCr(position)) {
+            if (nextCharAt(position) != '\n') {
+                return 1;
+            }
+            betweenCrLf = true;
+        }
+        int line = lineIndexOf(position);
+        long lineStart = line < 0 ? 0 : lineStarts[line];
+        if (line + 1 < lineCount && lineStarts[line + 1] == position + 1 && crlfLineStarts.get(line + 1)) {
+            betweenCrLf = true;
+        }
+        int column = countChars((int) (lineStart - discarded), (int) (position - discarded)) + 1;
+        // The CR of a CR LF pair does not take up a column
+        return betweenCrLf ? column - 1 : column;
+    }
+
+    private boolean isUnresolvedCr(long position) {
+        return pendingCr && position == indexed;
+    }
+
+    private int nextCharAt(long position) {
+        int offset = (int) (position - discarded);
+        return offset == cursor ? peek() : charAt(offset);
+    }
+
+    /**
+     * Returns the index of the last line start at or before the given position, or -1 if the position is on the first
+     * line.
+     */
+    private int lineIndexOf(long position) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lineStarts[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Records the start of each line up to the given absolute position.
+     */
+    private void index(long position) {
+        for (long pos = indexed; pos < position; pos++) {
+            char ch = charAt((int) (pos - discarded));
+            boolean afterCr = pendingCr;
+            pendingCr = false;
+            if (ch == '\n') {
+                addLineStart(pos + 1, afterCr);
+            } else {
+                if (afterCr) {
+                    addLineStart(pos, false);
+                }
+                pendingCr = ch == '\r';
+            }
+        }
+        if (position > indexed) {
+            indexed = position;
+        }
+    }
+
+    /**
+     * Returns the number of line starts held in the line index.
+     */
+    int getIndexedLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Drops the line starts before the line that contains the given absolute position.
+     */
+    private void dropLinesBefore(long position) {
+        int line = lineIndexOf(position);
+        if (line <= 0) {
+            return;
+        }
+        System.arraycopy(lineStarts, line, lineStarts, 0, lineCount - line);
+        crlfLineStarts = crlfLineStarts.get(line, Math.max(line, crlfLineStarts.length()));
+        lineCount -= line;
+        droppedLines += line;
+    }
+
+    private void addLineStart(long position, boolean crlf) {
+        if (lineStarts == null) {
+            lineStarts = new long[16];
+        } else if (lineCount == lineStarts.length) {
+            long[] newLineStarts = new long[lineCount * 2];
+            System.arraycopy(lineStarts, 0, newLineStarts, 0, lineCount);
+            lineStarts = newLineStarts;
+        }
+        if (crlf) {
+            crlfLineStarts.set(lineCount);
+        }
+        lineStarts[lineCount++] = position;
+    }
+
+    public void start() {
+        if (markCount == 0) {
+            firstMark = cursor;
+        }
+        if (markCount == markOffsets.length) {
+            int[] newOffsets = new int[markOffsets.length * 2];
+            System.arraycopy(markOffsets, 0, newOffsets, 0, markCount);
+            markOffsets = newOffsets;
+            marksGrown(newOffsets);
+        }
+        markOffsets[markCount] = cursor;
+        markCount++;
+        startProduction = -1;
+        endProduction = -1;
+        startPosition = -1;
+        endPosition = -1;
+        located = false;
+    }
+
+    public boolean commit() {
+        markCount--;
+        int startThisToken = markOffsets[markCount];
+        startProduction = startThisToken;
+        endProduction = cursor;
+        startPosition = discarded + startThisToken;
+        endPosition = discarded + cursor;
+        located = false;
+        return cursor > startThisToken;
+    }
+
+    public void rollback() {
+        rewind();
+        markCount--;
+    }
+
+    public void rewind() {
+        cursor = markOffsets[markCount - 1];
+    }
+
+    public void accept() {
+        if (markCount != 1) {
+            return;
+        }
+        firstMark = cursor;
+        markOffsets[0] = cursor;
+        if (memoTable != null) {
+            // The stream cannot be rewound past this point, so the results are no longer needed
+            memoTable.clear();
+        }
+    }
+
+    public boolean consume(Production<? super CharStream> production) {
+        start();
+        production.match(this);
+        return commit();
+    }
+
+    public <T> T consume(ValueProducingProduction<? super CharStream, T> production) {
+        start();
+        T value = production.match(this);
+        if (value == null) {
+            rollback();
+        } else {
+            commit();
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T consumeMemoized(ValueProducingProduction<? super CharStream, T> production) {
+        if (memoTable == null) {
+            memoTable = new MemoTable();
+        }
+        long offset = discarded + cursor;
+        MemoTable.Result result = memoTable.get(production, offset);
+        if (result == null) {
+            T value = consume(production);
+            memoTable.put(production, offset, new MemoTable.Result(value, discarded + cursor));
+            return value;
+        }
+        if (result.value == null) {
+            return null;
+        }
+        start();
+        cursor = (int) (result.end - discarded);
+        commit();
+        return (T) result.value;
+    }
+
+    public int getMemoHits() {
+        return memoTable == null ? 0 : memoTable.getHits();
+    }
+
+    public int getMemoMisses() {
+        return memoTable == null ? 0 : memoTable.getMisses();
+    }
+
+    private boolean lookingAt(char... candidates) {
+        int ch = peek();
+        if (ch < 0) {
+            return false;
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            char candidate = candidates[i];
+            if (ch == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean consumeRange(char from, char to) {
+        int ch = peek();
+        if (ch >= from && ch <= to) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean consume(char... candidates) {
+        if (lookingAt(candidates)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean consumeAnyExcept(char... candidates) {
+        int ch = peek();
+        if (ch < 0) {
+            return false;
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            char candidate = candidates[i];
+            if (ch == candidate) {
+                return false;
+            }
+        }
+        advance();
+        return true;
+    }
+
+    public boolean consume(CharClass chars) {
+        if (chars.contains(peek())) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean consumeRun(CharClass chars) {
+        return skip(chars) > 0;
+    }
+
+    /**
+     * A reusable view of the characters between two positions.
+     */
+    private class Slice implements CharSequence {
+        private int start;
+        private int end;
+
+        void set(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int index) {
+            return AbstractCharStream.this.charAt(start + index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return getValue(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return getValue(start, end);
+        }
+    }
+}
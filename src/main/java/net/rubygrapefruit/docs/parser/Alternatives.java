@@ -0,0 +1,90 @@
+package net.rubygrapefruit.docs.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered set of alternative productions, which matches the first alternative that consumes any characters.
+ *
+ * <p>The alternatives that can start with each ASCII character are worked out up front, using the first characters
+ * declared by each {@link PredictiveProduction}. Only these alternatives are tried, in their original order, so a
+ * character that starts a late alternative does not have to fail each of the earlier ones first. Productions that do
+ * not declare their first characters are always tried, including at the end of the input.</p>
+ *
+ * @param <P> The type of the alternatives.
+ */
+public class Alternatives<P extends Production<? super CharStream>> implements PredictiveProduction<CharStream> {
+    private final Object[] candidates;
+    private final CharClass[] candidateFirstChars;
+    private final Object[][] asciiCandidates = new Object[128][];
+    private final Object[] endOfInputCandidates;
+    private final CharClass firstChars;
+
+    public Alternatives(List<? extends P> candidates) {
+        this.candidates = candidates.toArray();
+        candidateFirstChars = new CharClass[this.candidates.length];
+        for (int i = 0; i < this.candidates.length; i++) {
+            candidateFirstChars[i] = Productions.firstChars((Production<?>) this.candidates[i]);
+        }
+        for (char ch = 0; ch < asciiCandidates.length; ch++) {
+            List<Object> viable = new ArrayList<Object>();
+            for (int i = 0; i < this.candidates.length; i++) {
+                if (candidateFirstChars[i].contains(ch)) {
+                    viable.add(this.candidates[i]);
+                }
+            }
+            asciiCandidates[ch] = viable.toArray();
+        }
+        List<Object> undeclared = new ArrayList<Object>();
+        for (Object candidate : this.candidates) {
+            if (!(candidate instanceof PredictiveProduction)) {
+                undeclared.add(candidate);
+            }
+        }
+        endOfInputCandidates = undeclared.toArray();
+        firstChars = CharClass.union(candidateFirstChars);
+    }
+
+    /**
+     * Returns the characters that the alternatives can start with. This is every character when some alternative does
+     * not declare its first characters.
+     */
+    public CharClass getFirstChars() {
+        return firstChars;
+    }
+
+    public void match(CharStream stream) {
+        consumeFirst(stream);
+    }
+
+    /**
+     * Consumes the first alternative that matches.
+     *
+     * @return the alternative that matched, or null if none of them did.
+     */
+    @SuppressWarnings("unchecked")
+    public P consumeFirst(CharStream stream) {
+        int ch = stream.peek();
+        if (ch < asciiCandidates.length) {
+            Object[] viable = ch < 0 ? endOfInputCandidates : asciiCandidates[ch];
+            for (int i = 0; i < viable.length; i++) {
+                P candidate = (P) viable[i];
+                if (stream.consume(candidate)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+        // Not an ASCII character
+        for (int i = 0; i < candidates.length; i++) {
+            if (!candidateFirstChars[i].contains(ch)) {
+                continue;
+            }
+            P candidate = (P) candidates[i];
+            if (stream.consume(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
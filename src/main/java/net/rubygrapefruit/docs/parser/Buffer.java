@@ -2,173 +2,87 @@ package net.rubygrapefruit.docs.parser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
-import java.util.List;
 
-public class Buffer implements CharStream, MarkableStream {
+/**
+ * A {@link CharStream} that reads characters from a {@link Reader} into a buffer. Characters before the earliest mark
+ * are discarded from the buffer as more characters are read, and the buffer grows when the open productions need more
+ * characters than it can hold. This means the size of the buffer is determined by the longest production, rather than
+ * the length of the input.
+ *
+ * <p>The buffer and its marks are leased from the {@link BufferPool} of the current thread, when created while a
+ * {@link Parser} is parsing.</p>
+ */
+public class Buffer extends AbstractCharStream {
     private final Reader reader;
-    private final char[] buffer;
-    private final List<Mark> marks = new ArrayList<Mark>();
-    private int firstMark = 0;
-    private int cursor = 0;
-    private int currentLine = 1;
-    private int currentCol = 1;
+    private final BufferPool.Storage storage;
+    private char[] buffer;
     private int endBuffer = 0;
-    private int startProduction = 0;
-    private int endProduction = 0;
-    private int startLine = 0;
-    private int startColumn = 0;
-    private int endLine = 0;
-    private int endColumn = 0;
 
     public Buffer(Reader reader) {
-        this(reader, 8192);
+        this(reader, BufferPool.current().acquire());
     }
 
     public Buffer(Reader reader, int bufferLen) {
-        this.reader = reader;
-        buffer = new char[bufferLen];
-    }
-
-    public String getValue() {
-        return new String(buffer, startProduction, endProduction - startProduction);
-    }
-
-    public int getEndColumn() {
-        return endColumn;
-    }
-
-    public int getStartColumn() {
-        return startColumn;
-    }
-
-    public int getStartLine() {
-        return startLine;
-    }
-
-    public int getEndLine() {
-        return endLine;
-    }
-
-    public void start() {
-        if (marks.isEmpty()) {
-            firstMark = cursor;
-        }
-        marks.add(new Mark(cursor, currentLine, currentCol));
-        startProduction = -1;
-        endProduction = -1;
-        startColumn = -1;
-        startLine = -1;
-        endColumn = -1;
-        endLine = -1;
-    }
-
-    public boolean commit() {
-        Mark mark = marks.remove(marks.size() - 1);
-        int startThisToken = mark.offset;
-        startLine = mark.line;
-        startColumn = mark.col;
-        startProduction = startThisToken;
-        endProduction = cursor;
-        endLine = currentLine;
-        endColumn = currentCol - 1;
-        return cursor > startThisToken;
-    }
-
-    public void rollback() {
-        rewind();
-        marks.remove(marks.size() - 1);
+        this(reader, new BufferPool.Storage(bufferLen));
     }
 
-    public void rewind() {
-        cursor = marks.get(marks.size() - 1).offset;
+    private Buffer(Reader reader, BufferPool.Storage storage) {
+        super(storage.markOffsets);
+        this.reader = reader;
+        this.storage = storage;
+        buffer = storage.chars;
     }
 
-    public void accept() {
-        if (marks.size() != 1) {
-            return;
-        }
-        firstMark = cursor;
-        marks.get(0).moveTo(cursor);
+    /**
+     * Returns the current size of the buffer, in characters.
+     */
+    int getCapacity() {
+        return buffer.length;
     }
 
-    public boolean consume(Production<? super CharStream> production) {
-        start();
-        production.match(this);
-        return commit();
+    @Override
+    protected void marksGrown(int[] markOffsets) {
+        storage.markOffsets = markOffsets;
     }
 
-    public <T> T consume(ValueProducingProduction<? super CharStream, T> production) {
-        start();
-        T value = production.match(this);
-        if (value == null) {
-            rollback();
-        } else {
-            commit();
-        }
-        return value;
+    @Override
+    protected String getValue(int start, int end) {
+        return new String(buffer, start, end - start);
     }
 
-    private boolean lookingAt(char... candidates) {
-        int ch = peek();
-        if (ch < 0) {
-            return false;
-        }
-        for (int i = 0; i < candidates.length; i++) {
-            char candidate = candidates[i];
-            if (ch == candidate) {
-                return true;
+    @Override
+    protected int skip(CharClass chars) {
+        int count = 0;
+        while (true) {
+            int start = cursor;
+            while (cursor < endBuffer && chars.contains(buffer[cursor])) {
+                cursor++;
+            }
+            count += cursor - start;
+            if (cursor < endBuffer || peek() < 0) {
+                return count;
             }
         }
-        return false;
-    }
-
-    public boolean consumeRange(char from, char to) {
-        int ch = peek();
-        if (ch >= from && ch <= to) {
-            next();
-            return true;
-        }
-        return false;
-    }
-
-    public boolean consume(char... candidates) {
-        if (lookingAt(candidates)) {
-            next();
-            return true;
-        }
-        return false;
     }
 
-    public boolean consumeAnyExcept(char... candidates) {
-        int ch = peek();
-        if (ch < 0) {
-            return false;
-        }
-        for (int i = 0; i < candidates.length; i++) {
-            char candidate = candidates[i];
-            if (ch == candidate) {
-                return false;
-            }
-        }
-        next();
-        return true;
+    @Override
+    protected char charAt(int position) {
+        return buffer[position];
     }
 
-    private int peek() {
+    @Override
+    public int peek() {
         if (cursor == endBuffer) {
-            if (firstMark == 0 && endBuffer == buffer.length) {
-                throw new UnsupportedOperationException("Buffer overflow not implemented yet.");
-            }
-
-            // Move any consumed characters to the start of the buffer
-            System.arraycopy(buffer, firstMark, buffer, 0, endBuffer - firstMark);
-            cursor -= firstMark;
-            endBuffer -= firstMark;
-            for (int i = 0; i < marks.size(); i++) {
-                marks.get(i).retarget(firstMark);
-            }
-            firstMark = 0;
+            // Move any unconsumed characters to the start of the buffer. When they take up more than half the buffer,
+            // grow the buffer, so that there is always a reasonable amount of space to read the next chunk into
+            int discard = firstMark;
+            int retained = endBuffer - discard;
+            retarget(discard);
+            char[] target = retained > buffer.length / 2 ? new char[buffer.length * 2] : buffer;
+            System.arraycopy(buffer, discard, target, 0, retained);
+            buffer = target;
+            storage.chars = target;
+            endBuffer = retained;
 
             // Read the next chunk
             int nread;
@@ -186,46 +100,8 @@ public class Buffer implements CharStream, MarkableStream {
         return buffer[cursor];
     }
 
-    private void next() {
-        boolean hasCr = false;
-        if (buffer[cursor] == '\n') {
-            currentCol = 1;
-            currentLine++;
-        } else if (buffer[cursor] == '\r') {
-            hasCr = true;
-        } else {
-            currentCol++;
-        }
-
+    @Override
+    protected void advance() {
         cursor++;
-
-        if (hasCr) {
-            if (peek() != '\n') {
-                currentCol = 1;
-                currentLine++;
-            }
-        }
-    }
-
-    private static class Mark {
-        int offset;
-        final int col;
-        final int line;
-        boolean moved;
-
-        private Mark(int offset, int line, int col) {
-            this.offset = offset;
-            this.line = line;
-            this.col = col;
-        }
-
-        public void retarget(int offset) {
-            this.offset -= offset;
-        }
-
-        public void moveTo(int offset) {
-            this.offset = offset;
-            moved = true;
-        }
     }
 }
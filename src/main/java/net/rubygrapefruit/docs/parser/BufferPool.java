@@ -0,0 +1,90 @@
+package net.rubygrapefruit.docs.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A per-thread pool of the storage used by {@link Buffer}, so that parsing many small documents does not allocate a new
+ * character array and mark stack for each document. Only input read from a {@link java.io.Reader} uses a buffer, as
+ * files and strings are parsed in place.
+ *
+ * <p>Storage is only pooled for buffers created while a parse is in progress on the current thread, between calls to
+ * {@link #enter()} and {@link #exit(int)}. {@link Parser} does this for each parse, and returns the storage leased
+ * during the parse to the pool once the parse has finished. A buffer must not be used once its storage has been
+ * returned. Storage that has grown beyond {@link #MAX_POOLED_SIZE} characters is discarded rather than returned, so
+ * that a single large document does not pin a large buffer to the thread.</p>
+ */
+final class BufferPool {
+    static final int BUFFER_SIZE = 8192;
+    static final int MAX_POOLED_SIZE = 64 * 1024;
+    private static final ThreadLocal<BufferPool> POOL = new ThreadLocal<BufferPool>() {
+        @Override
+        protected BufferPool initialValue() {
+            return new BufferPool();
+        }
+    };
+    private final List<Storage> free = new ArrayList<Storage>();
+    private final List<Storage> leased = new ArrayList<Storage>();
+    private int depth;
+
+    /**
+     * Returns the pool for the current thread.
+     */
+    static BufferPool current() {
+        return POOL.get();
+    }
+
+    /**
+     * Starts a parse on the current thread.
+     *
+     * @return A marker to pass to {@link #exit(int)} when the parse finishes.
+     */
+    int enter() {
+        depth++;
+        return leased.size();
+    }
+
+    /**
+     * Finishes a parse on the current thread, and returns the storage leased since the matching call to {@link
+     * #enter()} to the pool.
+     */
+    void exit(int marker) {
+        depth--;
+        while (leased.size() > marker) {
+            Storage storage = leased.remove(leased.size() - 1);
+            if (storage.chars.length <= MAX_POOLED_SIZE) {
+                free.add(storage);
+            }
+        }
+    }
+
+    /**
+     * Returns storage for a new buffer. The storage is leased from the pool if a parse is in progress, and is allocated
+     * otherwise.
+     */
+    Storage acquire() {
+        if (depth == 0) {
+            return new Storage();
+        }
+        Storage storage = free.isEmpty() ? new Storage() : free.remove(free.size() - 1);
+        leased.add(storage);
+        return storage;
+    }
+
+    /**
+     * The storage of a buffer. The buffer replaces the character array and the mark offsets when it grows them.
+     */
+    static class Storage {
+        char[] chars;
+        int[] markOffsets;
+
+        Storage() {
+            this(BUFFER_SIZE);
+        }
+
+        Storage(int bufferLen) {
+            chars = new char[bufferLen];
+            markOffsets = new int[16];
+        }
+    }
+}
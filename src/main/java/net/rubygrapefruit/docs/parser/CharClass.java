@@ -0,0 +1,97 @@
+package net.rubygrapefruit.docs.parser;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of characters, which can be matched by a {@link CharStream}. ASCII characters are looked up in a
+ * table, so a match does not depend on the number of characters in the set. Instances should be created once and
+ * reused, rather than created for each match.
+ */
+public final class CharClass {
+    private final boolean[] ascii = new boolean[128];
+    private final char[] nonAscii;
+    private final char nonAsciiFrom;
+    private final char nonAsciiTo;
+    private final boolean negated;
+    private final CharClass[] members;
+
+    private CharClass(char[] candidates, char from, char to, boolean negated) {
+        for (char ch = 0; ch < ascii.length; ch++) {
+            ascii[ch] = (Arrays.binarySearch(candidates, ch) >= 0 || ch >= from && ch <= to) != negated;
+        }
+        int firstNonAscii = 0;
+        while (firstNonAscii < candidates.length && candidates[firstNonAscii] < 128) {
+            firstNonAscii++;
+        }
+        this.nonAscii = Arrays.copyOfRange(candidates, firstNonAscii, candidates.length);
+        this.nonAsciiFrom = from;
+        this.nonAsciiTo = to;
+        this.negated = negated;
+        this.members = null;
+    }
+
+    private CharClass(CharClass[] members) {
+        for (char ch = 0; ch < ascii.length; ch++) {
+            for (CharClass member : members) {
+                ascii[ch] |= member.ascii[ch];
+            }
+        }
+        this.nonAscii = new char[0];
+        this.nonAsciiFrom = 1;
+        this.nonAsciiTo = 0;
+        this.negated = false;
+        this.members = members.clone();
+    }
+
+    /**
+     * Returns a class that contains the given characters.
+     */
+    public static CharClass anyOf(char... candidates) {
+        return new CharClass(sort(candidates), (char) 1, (char) 0, false);
+    }
+
+    /**
+     * Returns a class that contains every character except the given characters.
+     */
+    public static CharClass anyExcept(char... candidates) {
+        return new CharClass(sort(candidates), (char) 1, (char) 0, true);
+    }
+
+    /**
+     * Returns a class that contains the characters from the given range, inclusive.
+     */
+    public static CharClass range(char from, char to) {
+        return new CharClass(new char[0], from, to, false);
+    }
+
+    /**
+     * Returns a class that contains the characters of each of the given classes.
+     */
+    public static CharClass union(CharClass... classes) {
+        return new CharClass(classes);
+    }
+
+    private static char[] sort(char[] candidates) {
+        char[] sorted = candidates.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns true if this class contains the given character. Returns false for -1, the end of the input.
+     */
+    public boolean contains(int ch) {
+        if (ch < 128) {
+            return ch >= 0 && ascii[ch];
+        }
+        if (members != null) {
+            for (CharClass member : members) {
+                if (member.contains(ch)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return (Arrays.binarySearch(nonAscii, (char) ch) >= 0 || ch >= nonAsciiFrom && ch <= nonAsciiTo) != negated;
+    }
+}
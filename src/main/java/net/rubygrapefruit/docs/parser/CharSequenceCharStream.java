@@ -0,0 +1,44 @@
+package net.rubygrapefruit.docs.parser;
+
+/**
+ * A {@link CharStream} that scans a {@link CharSequence} that is already in memory. Characters are read directly from
+ * the sequence, so there is no buffering or compaction, and the only copy made is of the value of each production.
+ */
+public class CharSequenceCharStream extends AbstractCharStream {
+    private final CharSequence text;
+    private final int length;
+
+    public CharSequenceCharStream(CharSequence text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    @Override
+    public int peek() {
+        return cursor < length ? text.charAt(cursor) : -1;
+    }
+
+    @Override
+    protected void advance() {
+        cursor++;
+    }
+
+    @Override
+    protected int skip(CharClass chars) {
+        int start = cursor;
+        while (cursor < length && chars.contains(text.charAt(cursor))) {
+            cursor++;
+        }
+        return cursor - start;
+    }
+
+    @Override
+    protected char charAt(int position) {
+        return text.charAt(position);
+    }
+
+    @Override
+    protected String getValue(int start, int end) {
+        return text.subSequence(start, end).toString();
+    }
+}
@@ -1,12 +1,31 @@
 package net.rubygrapefruit.docs.parser;
 
 public interface CharStream extends RewindableStream {
+    /**
+     * Returns the next character without consuming it, or -1 at the end of the input.
+     */
+    int peek();
+
     boolean consumeRange(char from, char to);
 
     boolean consume(char... candidates);
 
     boolean consumeAnyExcept(char... candidates);
 
+    /**
+     * Consumes a single character from the given class.
+     *
+     * @return true if a character was consumed, false if not.
+     */
+    boolean consume(CharClass chars);
+
+    /**
+     * Consumes as many characters from the given class as possible.
+     *
+     * @return true if any characters were consumed, false if not.
+     */
+    boolean consumeRun(CharClass chars);
+
     /**
      * Consumes a single instance of the given production.
      *
@@ -21,11 +40,37 @@ public interface CharStream extends RewindableStream {
      */
     <T> T consume(ValueProducingProduction<? super CharStream, T> production);
 
+    /**
+     * Consumes a single instance of the given production, remembering the result so that a later attempt at the same
+     * position does not match the production again. The production must not have any side effects, and its value must
+     * depend only on the characters it consumes.
+     *
+     * @return the value produced by the production, null if the production did not match.
+     */
+    <T> T consumeMemoized(ValueProducingProduction<? super CharStream, T> production);
+
+    /**
+     * Returns the number of memoised productions that were answered from a previous attempt at the same position.
+     */
+    int getMemoHits();
+
+    /**
+     * Returns the number of memoised productions that had to be matched.
+     */
+    int getMemoMisses();
+
     /**
      * Returns the value between the mark and cursor, as at the end of the most recently matched production.
      */
     String getValue();
 
+    /**
+     * Returns a view of the value between the mark and cursor, as at the end of the most recently matched production,
+     * without copying it where possible. The view is only valid until the next call to a method of this stream, so its
+     * characters must be copied if they are needed after that.
+     */
+    CharSequence getSlice();
+
     /**
      * Returns the start column of the most recently matched production.
      */
@@ -0,0 +1,58 @@
+package net.rubygrapefruit.docs.parser;
+
+import net.rubygrapefruit.docs.model.buildable.BuildableDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * A parser that scans its input using a {@link CharStream}. Input files are read, or mapped into memory when large,
+ * and scanned as UTF-8 using a {@link Utf8CharStream}, UTF-8 content is scanned in place, and text is scanned using a {@link
+ * CharSequenceCharStream}, rather than being copied through a reader and a {@link Buffer}.
+ */
+public abstract class CharStreamParser extends Parser {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CharStreamParser.class);
+
+    @Override
+    protected void doParse(File input, BuildableDocument document) throws Exception {
+        if (input.length() > Integer.MAX_VALUE) {
+            // Too large to map as a single buffer
+            super.doParse(input, document);
+            return;
+        }
+        ByteBuffer content = Utf8CharStream.read(input);
+        try {
+            parse(new Utf8CharStream(content), input.getPath(), document);
+        } finally {
+            Utf8CharStream.release(content);
+        }
+    }
+
+    @Override
+    protected void doParse(ByteBuffer content, String fileName, BuildableDocument document) throws Exception {
+        parse(new Utf8CharStream(content), fileName, document);
+    }
+
+    @Override
+    protected void doParse(CharSequence text, String fileName, BuildableDocument document) throws Exception {
+        parse(new CharSequenceCharStream(text), fileName, document);
+    }
+
+    @Override
+    protected void doParse(Reader input, String fileName, BuildableDocument document) throws Exception {
+        parse(new Buffer(input), fileName, document);
+    }
+
+    private void parse(CharStream input, String fileName, BuildableDocument document) throws Exception {
+        doParse(input, fileName, document);
+        if (input.getMemoMisses() > 0) {
+            LOGGER.debug("Memoised productions for {}: {} hits, {} misses.", new Object[]{fileName, input.getMemoHits(),
+                    input.getMemoMisses()});
+        }
+    }
+
+    protected abstract void doParse(CharStream input, String fileName, BuildableDocument document) throws Exception;
+}
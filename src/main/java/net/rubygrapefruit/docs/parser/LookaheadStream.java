@@ -1,18 +1,27 @@
 package net.rubygrapefruit.docs.parser;
 
-import java.util.ArrayList;
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/**
+ * A stream of elements that can be looked ahead into to any depth. Elements that have been read but not consumed are
+ * held in a circular buffer, which grows when the lookahead needs more elements than it can hold, so that consuming and
+ * peeking at an element take constant time regardless of how far ahead has been read.
+ */
 public abstract class LookaheadStream<T> {
-    private final List<T> queue = new ArrayList<T>();
+    private Object[] elements = new Object[16];
+    private int head;
+    private int count;
+    private final Collection<T> queue = new Queue();
 
     protected LookaheadStream() {
     }
 
     protected LookaheadStream(Iterable<? extends T> initialValues) {
         for (T initialValue : initialValues) {
-            queue.add(initialValue);
+            append(initialValue);
         }
     }
 
@@ -21,22 +30,46 @@ public abstract class LookaheadStream<T> {
     }
 
     public T peek(int depth) {
-        while (queue.size() <= depth) {
-            int size = queue.size();
+        while (count <= depth) {
+            int size = count;
             readNext(queue);
-            if (queue.size() == size) {
+            if (count == size) {
                 return endOfStream();
             }
         }
-        return queue.get(depth);
+        return get(depth);
     }
 
     public T next() {
         peek(0);
-        if (!queue.isEmpty()) {
-            return queue.remove(0);
+        if (count == 0) {
+            return null;
         }
-        return null;
+        T element = get(0);
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        count--;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+        return (T) elements[(head + index) & (elements.length - 1)];
+    }
+
+    private void append(T element) {
+        if (count == elements.length) {
+            // Unwrap the elements into a buffer of twice the size. The size is kept as a power of two, so that a
+            // position can be wrapped with a mask
+            Object[] newElements = new Object[elements.length * 2];
+            int firstPart = elements.length - head;
+            System.arraycopy(elements, head, newElements, 0, firstPart);
+            System.arraycopy(elements, 0, newElements, firstPart, head);
+            elements = newElements;
+            head = 0;
+        }
+        elements[(head + count) & (elements.length - 1)] = element;
+        count++;
     }
 
     /**
@@ -50,4 +83,43 @@ public abstract class LookaheadStream<T> {
      * Returns the next available elements.
      */
     protected abstract void readNext(Collection<T> elements);
+
+    /**
+     * The view of the buffered elements passed to {@link #readNext(Collection)}, which appends added elements to the
+     * buffer.
+     */
+    private class Queue extends AbstractCollection<T> {
+        @Override
+        public boolean add(T element) {
+            append(element);
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                int index;
+
+                public boolean hasNext() {
+                    return index < count;
+                }
+
+                public T next() {
+                    if (index >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(index++);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
 }
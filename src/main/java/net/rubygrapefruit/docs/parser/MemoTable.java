@@ -0,0 +1,79 @@
+package net.rubygrapefruit.docs.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The results of the memoised productions of a stream, keyed by production and start offset. Offsets are from the start
+ * of the input, so that they remain valid as a stream discards characters.
+ */
+final class MemoTable {
+    private final Map<Key, Result> results = new HashMap<Key, Result>();
+    private final Key probe = new Key();
+    private int hits;
+    private int misses;
+
+    /**
+     * Returns the result of the given production at the given offset, or null if the production has not been tried
+     * there.
+     */
+    Result get(Object production, long offset) {
+        probe.production = production;
+        probe.offset = offset;
+        Result result = results.get(probe);
+        probe.production = null;
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    void put(Object production, long offset, Result result) {
+        Key key = new Key();
+        key.production = production;
+        key.offset = offset;
+        results.put(key, result);
+    }
+
+    void clear() {
+        if (!results.isEmpty()) {
+            results.clear();
+        }
+    }
+
+    int getHits() {
+        return hits;
+    }
+
+    int getMisses() {
+        return misses;
+    }
+
+    static class Result {
+        final Object value;
+        final long end;
+
+        Result(Object value, long end) {
+            this.value = value;
+            this.end = end;
+        }
+    }
+
+    private static class Key {
+        Object production;
+        long offset;
+
+        @Override
+        public boolean equals(Object obj) {
+            Key other = (Key) obj;
+            return other.production == production && other.offset == offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(production) * 31 + (int) (offset ^ (offset >>> 32));
+        }
+    }
+}
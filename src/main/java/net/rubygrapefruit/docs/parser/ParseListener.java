@@ -0,0 +1,13 @@
+package net.rubygrapefruit.docs.parser;
+
+import net.rubygrapefruit.docs.model.buildable.BuildableDocument;
+
+/**
+ * Receives notifications as a {@link Parser} builds a document.
+ */
+public interface ParseListener {
+    /**
+     * Called once the input has been parsed into the given document, and before the document is finished.
+     */
+    void parsed(BuildableDocument document);
+}
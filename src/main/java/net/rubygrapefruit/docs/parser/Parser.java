@@ -1,40 +1,74 @@
 package net.rubygrapefruit.docs.parser;
 
+import com.google.common.base.Charsets;
 import net.rubygrapefruit.docs.model.buildable.BuildableDocument;
 import net.rubygrapefruit.docs.model.Document;
+import net.rubygrapefruit.docs.model.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public abstract class Parser {
     private static final Logger LOGGER = LoggerFactory.getLogger(Parser.class);
-    
-    public Document parse(File input) throws ParseException {
-        LOGGER.info("Parsing {}.", input);
+    @Nullable
+    private ParseListener listener;
+
+    /**
+     * Sets the listener to notify as this parser builds a document.
+     */
+    public void setListener(@Nullable ParseListener listener) {
+        this.listener = listener;
+    }
+
+    public Document parse(final File input) throws ParseException {
+        LOGGER.debug("Parsing {}.", input);
         try {
-            BufferedReader reader = new BufferedReader(new FileReader(input));
-            try {
-                return doParse(reader, input.getPath());
-            } finally {
-                reader.close();
-            }
+            return doParse(new Input() {
+                public void parse(BuildableDocument document) throws Exception {
+                    doParse(input, document);
+                }
+            });
         } catch (Exception e) {
             throw new ParseException(String.format("Could not parse '%s'.", input), e);
         }
     }
 
-    public Document parse(String text, String fileName) throws ParseException {
-        LOGGER.info("Parsing {}.", fileName);
+    /**
+     * Parses the given UTF-8 encoded content. The content is not copied, and the buffer's position is not changed.
+     */
+    public Document parse(final ByteBuffer content, final String fileName) throws ParseException {
+        LOGGER.debug("Parsing {}.", fileName);
         try {
-            return doParse(new StringReader(text), fileName);
+            return doParse(new Input() {
+                public void parse(BuildableDocument document) throws Exception {
+                    doParse(content, fileName, document);
+                }
+            });
+        } catch (Exception e) {
+            throw new ParseException(String.format("Could not parse '%s'.", fileName), e);
+        }
+    }
+
+    /**
+     * Parses the given text. The text is not copied, so must not change while it is being parsed.
+     */
+    public Document parse(final CharSequence text, final String fileName) throws ParseException {
+        LOGGER.debug("Parsing {}.", fileName);
+        try {
+            return doParse(new Input() {
+                public void parse(BuildableDocument document) throws Exception {
+                    doParse(text, fileName, document);
+                }
+            });
         } catch (Exception e) {
             throw new ParseException(String.format("Could not parse '%s'.", fileName), e);
         }
     }
 
     public Document parse(Reader input, String fileName) throws ParseException {
-        LOGGER.info("Parsing {}.", fileName);
+        LOGGER.debug("Parsing {}.", fileName);
         try {
             return doParse(input, fileName);
         } catch (Exception e) {
@@ -42,12 +76,61 @@ public abstract class Parser {
         }
     }
 
-    private Document doParse(Reader input, String fileName) throws Exception {
+    private Document doParse(final Reader input, final String fileName) throws Exception {
+        return doParse(new Input() {
+            public void parse(BuildableDocument document) throws Exception {
+                doParse(input, fileName, document);
+            }
+        });
+    }
+
+    private Document doParse(Input input) throws Exception {
         BuildableDocument document = new BuildableDocument();
-        doParse(input, fileName, document);
+        BufferPool bufferPool = BufferPool.current();
+        int marker = bufferPool.enter();
+        try {
+            input.parse(document);
+        } finally {
+            bufferPool.exit(marker);
+        }
+        if (listener != null) {
+            listener.parsed(document);
+        }
         document.finish();
         return document;
     }
 
+    /**
+     * Parses the given input file. The default implementation reads the file as UTF-8 using a reader, the same as
+     * content passed to {@link #parse(ByteBuffer, String)}.
+     */
+    protected void doParse(File input, BuildableDocument document) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), Charsets.UTF_8));
+        try {
+            doParse(reader, input.getPath(), document);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses the given UTF-8 encoded content. The default implementation decodes the content and reads it using a
+     * reader.
+     */
+    protected void doParse(ByteBuffer content, String fileName, BuildableDocument document) throws Exception {
+        doParse(new StringReader(Charsets.UTF_8.decode(content.duplicate()).toString()), fileName, document);
+    }
+
+    /**
+     * Parses the given text. The default implementation reads the text using a reader.
+     */
+    protected void doParse(CharSequence text, String fileName, BuildableDocument document) throws Exception {
+        doParse(new StringReader(text.toString()), fileName, document);
+    }
+
     protected abstract void doParse(Reader input, String fileName, BuildableDocument document) throws Exception;
+
+    private interface Input {
+        void parse(BuildableDocument document) throws Exception;
+    }
 }
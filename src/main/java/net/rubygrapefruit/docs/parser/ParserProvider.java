@@ -0,0 +1,28 @@
+package net.rubygrapefruit.docs.parser;
+
+/**
+ * Makes a {@link Parser} implementation available to the launcher. Implementations are discovered using {@link
+ * java.util.ServiceLoader}, so must have a public no-args constructor. They should be cheap to create, and should not
+ * load the parser implementation until {@link #createParser()} is called.
+ */
+public interface ParserProvider {
+    /**
+     * Returns a short name for the input format, for use in messages.
+     */
+    String getName();
+
+    /**
+     * Returns true if the parser can parse a file with the given name.
+     */
+    boolean canParse(String fileName);
+
+    /**
+     * Returns true if this parser should be used for files that no other parser can parse.
+     */
+    boolean isDefault();
+
+    /**
+     * Creates a parser. A parser is created for each input file.
+     */
+    Parser createParser();
+}
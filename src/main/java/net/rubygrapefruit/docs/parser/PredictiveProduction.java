@@ -0,0 +1,12 @@
+package net.rubygrapefruit.docs.parser;
+
+/**
+ * A production that declares the characters it can start with. The production must not consume any characters when
+ * the next character is not one of these, which allows a set of alternatives to skip it without trying it.
+ */
+public interface PredictiveProduction<T> extends Production<T> {
+    /**
+     * Returns the characters that this production can start with.
+     */
+    CharClass getFirstChars();
+}
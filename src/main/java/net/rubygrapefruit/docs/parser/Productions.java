@@ -1,11 +1,18 @@
 package net.rubygrapefruit.docs.parser;
 
+import java.util.Arrays;
+
 public class Productions {
     /**
      * Matches the given character.
      */
-    public static Production<CharStream> match(final char candidate) {
-        return new Production<CharStream>() {
+    public static PredictiveProduction<CharStream> match(final char candidate) {
+        final CharClass firstChars = CharClass.anyOf(candidate);
+        return new PredictiveProduction<CharStream>() {
+            public CharClass getFirstChars() {
+                return firstChars;
+            }
+
             public void match(CharStream stream) {
                 stream.consume(candidate);
             }
@@ -15,8 +22,13 @@ public class Productions {
     /**
      * Matches the given string.
      */
-    public static Production<CharStream> match(final String chars) {
-        return new Production<CharStream>() {
+    public static PredictiveProduction<CharStream> match(final String chars) {
+        final CharClass firstChars = chars.length() == 0 ? CharClass.anyOf() : CharClass.anyOf(chars.charAt(0));
+        return new PredictiveProduction<CharStream>() {
+            public CharClass getFirstChars() {
+                return firstChars;
+            }
+
             public void match(CharStream stream) {
                 for (int i = 0; i < chars.length(); i++) {
                     if (!stream.consume(chars.charAt(i))) {
@@ -31,10 +43,16 @@ public class Productions {
     /**
      * Matches the given string, ignoring case.
      */
-    public static Production<CharStream> matchIgnoreCase(final String chars) {
+    public static PredictiveProduction<CharStream> matchIgnoreCase(final String chars) {
         final String lcChars = chars.toLowerCase();
         final String ucChars = chars.toUpperCase();
-        return new Production<CharStream>() {
+        final CharClass firstChars = chars.length() == 0 ? CharClass.anyOf() : CharClass.anyOf(lcChars.charAt(0),
+                ucChars.charAt(0));
+        return new PredictiveProduction<CharStream>() {
+            public CharClass getFirstChars() {
+                return firstChars;
+            }
+
             public void match(CharStream stream) {
                 for (int i = 0; i < lcChars.length(); i++) {
                     if (!stream.consume(lcChars.charAt(i), ucChars.charAt(i))) {
@@ -49,8 +67,13 @@ public class Productions {
     /**
      * Matches a character form the given range.
      */
-    public static Production<CharStream> matchFromRange(final char from, final char to) {
-        return new Production<CharStream>() {
+    public static PredictiveProduction<CharStream> matchFromRange(final char from, final char to) {
+        final CharClass firstChars = CharClass.range(from, to);
+        return new PredictiveProduction<CharStream>() {
+            public CharClass getFirstChars() {
+                return firstChars;
+            }
+
             public void match(CharStream stream) {
                 stream.consumeRange(from, to);
             }
@@ -60,11 +83,21 @@ public class Productions {
     /**
      * Matches one or more of the given characters.
      */
-    public static Production<CharStream> matchAtLeastOneOf(final char... candidates) {
-        return new Production<CharStream>() {
+    public static PredictiveProduction<CharStream> matchAtLeastOneOf(char... candidates) {
+        return matchAtLeastOneOf(CharClass.anyOf(candidates));
+    }
+
+    /**
+     * Matches one or more characters from the given class.
+     */
+    public static PredictiveProduction<CharStream> matchAtLeastOneOf(final CharClass chars) {
+        return new PredictiveProduction<CharStream>() {
+            public CharClass getFirstChars() {
+                return chars;
+            }
+
             public void match(CharStream stream) {
-                while (stream.consume(candidates)) {
-                }
+                stream.consumeRun(chars);
             }
         };
     }
@@ -72,8 +105,13 @@ public class Productions {
     /**
      * Matches one or more of the given production.
      */
-    public static Production<CharStream> matchAtLeastOnce(final Production<? super CharStream> production) {
-        return new Production<CharStream>() {
+    public static PredictiveProduction<CharStream> matchAtLeastOnce(final Production<? super CharStream> production) {
+        final CharClass firstChars = firstChars(production);
+        return new PredictiveProduction<CharStream>() {
+            public CharClass getFirstChars() {
+                return firstChars;
+            }
+
             public void match(CharStream charStream) {
                 while (charStream.consume(production)) {
                 }
@@ -82,18 +120,21 @@ public class Productions {
     }
 
     /**
-     * Matches the first of the given candidates.
+     * Matches the first of the given candidates. Only the candidates that can start with the next character are tried.
      */
-    public static Production<CharStream> matchFirstOf(final Production<? super CharStream>... candidates) {
-        return new Production<CharStream>() {
-            public void match(CharStream stream) {
-                for (int i = 0; i < candidates.length; i++) {
-                    Production<? super CharStream> candidate = candidates[i];
-                    if (stream.consume(candidate)) {
-                        return;
-                    }
-                }
-            }
-        };
+    public static Alternatives<Production<? super CharStream>> matchFirstOf(
+            Production<? super CharStream>... candidates) {
+        return new Alternatives<Production<? super CharStream>>(Arrays.asList(candidates));
+    }
+
+    /**
+     * Returns the characters that the given production can start with. This is every character when the production
+     * does not declare its first characters.
+     */
+    public static CharClass firstChars(Production<?> production) {
+        if (production instanceof PredictiveProduction) {
+            return ((PredictiveProduction<?>) production).getFirstChars();
+        }
+        return CharClass.anyExcept();
     }
 }
@@ -0,0 +1,251 @@
+package net.rubygrapefruit.docs.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link CharStream} that scans UTF-8 encoded bytes in place, such as the content of a memory-mapped file. ASCII bytes
+ * are returned directly, and only multi-byte sequences are decoded, so the input is not copied or decoded up front.
+ * Malformed sequences are returned as U+FFFD, one byte at a time.
+ *
+ * <p>Positions are byte offsets. A supplementary character is returned as a surrogate pair, with the low surrogate at
+ * the position of the second byte of its encoding.</p>
+ */
+public class Utf8CharStream extends AbstractCharStream {
+    private static final char REPLACEMENT = '\uFFFD';
+    /**
+     * Files smaller than this are read into the heap rather than mapped.
+     */
+    static final long MAP_THRESHOLD = 1024 * 1024;
+    private final ByteBuffer bytes;
+    private final int length;
+
+    /**
+     * Creates a stream over the remaining bytes of the given buffer. The buffer's position is not changed.
+     */
+    public Utf8CharStream(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+        this.length = this.bytes.limit();
+    }
+
+    /**
+     * Reads the content of the given file. Small files are read into the heap, and larger files are mapped into memory.
+     * Call {@link #release(ByteBuffer)} once the content is no longer required, so that a mapped file is not held open
+     * until the buffer is garbage collected.
+     */
+    public static ByteBuffer read(File file) throws IOException {
+        return read(file, MAP_THRESHOLD);
+    }
+
+    static ByteBuffer read(File file, long mapThreshold) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size >= mapThreshold) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            return buffer;
+        } finally {
+            // The mapping remains valid once the channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Unmaps the given buffer, if it was mapped by {@link #read(File)}. Neither the buffer nor any stream or slice that
+     * uses it may be used afterwards. Unmapping relies on an internal JVM API, so where this is not available, the file
+     * remains mapped until the buffer is garbage collected. On Windows, the file cannot be replaced while it is mapped.
+     */
+    public static void release(ByteBuffer buffer) {
+        if (!(buffer instanceof MappedByteBuffer)) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // Java 8 and earlier
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (Exception e) {
+            // Not supported by this JVM, so leave the buffer to the garbage collector
+        }
+    }
+
+    @Override
+    public int peek() {
+        if (cursor >= length) {
+            return -1;
+        }
+        byte b = bytes.get(cursor);
+        if (b >= 0) {
+            return b;
+        }
+        return decode(cursor);
+    }
+
+    @Override
+    protected void advance() {
+        cursor = nextPosition(cursor);
+    }
+
+    @Override
+    protected String getValue(int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        int pos = start;
+        while (pos < end) {
+            byte b = bytes.get(pos);
+            if (b >= 0) {
+                builder.append((char) b);
+                pos++;
+            } else {
+                builder.append(decode(pos));
+                pos = nextPosition(pos);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    protected int skip(CharClass chars) {
+        int count = 0;
+        while (cursor < length) {
+            byte b = bytes.get(cursor);
+            if (b >= 0) {
+                if (!chars.contains(b)) {
+                    break;
+                }
+                cursor++;
+            } else {
+                if (!chars.contains(decode(cursor))) {
+                    break;
+                }
+                cursor = nextPosition(cursor);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    protected char charAt(int position) {
+        return (char) bytes.get(position);
+    }
+
+    /**
+     * Returns a view of the bytes when they are all ASCII, as each byte is then a character. Decodes them otherwise.
+     */
+    @Override
+    protected CharSequence getSlice(int start, int end) {
+        for (int pos = start; pos < end; pos++) {
+            if (bytes.get(pos) < 0) {
+                return getValue(start, end);
+            }
+        }
+        return super.getSlice(start, end);
+    }
+
+    @Override
+    protected int countChars(int start, int end) {
+        int count = 0;
+        for (int pos = start; pos < end; pos = nextPosition(pos)) {
+            count++;
+        }
+        return count;
+    }
+
+    private int nextPosition(int pos) {
+        int b = bytes.get(pos) & 0xFF;
+        if (b < 0x80) {
+            return pos + 1;
+        }
+        if (b < 0xC0) {
+            // Either the low surrogate of a supplementary character, or a malformed sequence
+            return isLowSurrogatePosition(pos) ? pos + 3 : pos + 1;
+        }
+        if (b < 0xE0) {
+            return decode2(pos) < 0 ? pos + 1 : pos + 2;
+        }
+        if (b < 0xF0) {
+            return decode3(pos) < 0 ? pos + 1 : pos + 3;
+        }
+        // A valid 4 byte sequence moves to the low surrogate at the next position
+        return pos + 1;
+    }
+
+    private char decode(int pos) {
+        int b = bytes.get(pos) & 0xFF;
+        if (b < 0xC0) {
+            if (isLowSurrogatePosition(pos)) {
+                return (char) (0xDC00 + ((decode4(pos - 1) - 0x10000) & 0x3FF));
+            }
+            return REPLACEMENT;
+        }
+        if (b < 0xE0) {
+            int ch = decode2(pos);
+            return ch < 0 ? REPLACEMENT : (char) ch;
+        }
+        if (b < 0xF0) {
+            int ch = decode3(pos);
+            return ch < 0 ? REPLACEMENT : (char) ch;
+        }
+        int codePoint = decode4(pos);
+        return codePoint < 0 ? REPLACEMENT : (char) (0xD800 + ((codePoint - 0x10000) >> 10));
+    }
+
+    private boolean isLowSurrogatePosition(int pos) {
+        return pos > 0 && (bytes.get(pos - 1) & 0xF8) == 0xF0 && decode4(pos - 1) >= 0;
+    }
+
+    private int decode2(int pos) {
+        if (pos + 1 >= length || !isContinuation(pos + 1)) {
+            return -1;
+        }
+        int ch = (bytes.get(pos) & 0x1F) << 6 | bytes.get(pos + 1) & 0x3F;
+        return ch < 0x80 ? -1 : ch;
+    }
+
+    private int decode3(int pos) {
+        if (pos + 2 >= length || !isContinuation(pos + 1) || !isContinuation(pos + 2)) {
+            return -1;
+        }
+        int ch = (bytes.get(pos) & 0x0F) << 12 | (bytes.get(pos + 1) & 0x3F) << 6 | bytes.get(pos + 2) & 0x3F;
+        return ch < 0x800 || ch >= 0xD800 && ch <= 0xDFFF ? -1 : ch;
+    }
+
+    private int decode4(int pos) {
+        // A lead byte above 0xF4 starts a sequence beyond U+10FFFF, or is not a lead byte at all
+        if ((bytes.get(pos) & 0xFF) > 0xF4 || pos + 3 >= length || !isContinuation(pos + 1) || !isContinuation(pos + 2) || !isContinuation(pos + 3)) {
+            return -1;
+        }
+        int codePoint = (bytes.get(pos) & 0x07) << 18 | (bytes.get(pos + 1) & 0x3F) << 12
+                | (bytes.get(pos + 2) & 0x3F) << 6 | bytes.get(pos + 3) & 0x3F;
+        return codePoint < 0x10000 || codePoint > 0x10FFFF ? -1 : codePoint;
+    }
+
+    private boolean isContinuation(int pos) {
+        return (bytes.get(pos) & 0xC0) == 0x80;
+    }
+}
@@ -4,6 +4,8 @@ import com.itextpdf.text.BaseColor;
 import com.itextpdf.text.Font;
 import net.rubygrapefruit.docs.theme.TextTheme;
 
+import java.math.BigDecimal;
+
 public class FontStack {
     private final Font base;
     private final TextTheme theme;
@@ -57,6 +59,16 @@ public class FontStack {
         }
     }
 
+    /**
+     * Returns line spacing, as a multiple of the font size.
+     */
+    public BigDecimal getLineSpacing() {
+        if (theme != null) {
+            return theme.getLineSpacing();
+        }
+        return BigDecimal.valueOf(14, 1);
+    }
+
     public Font getBase() {
         return base;
     }
@@ -17,18 +17,11 @@ import net.rubygrapefruit.docs.theme.TextTheme;
 import net.rubygrapefruit.docs.theme.Theme;
 
 import java.io.OutputStream;
-import java.math.BigDecimal;
 
 public class PdfRenderer extends SingleFileRenderer {
-    private BigDecimal lineHeight;
-
     @Override
     protected void doRender(RenderableDocument document, Theme theme, OutputStream stream) throws Exception {
         TextTheme textTheme = theme.getAspect(TextTheme.class);
-        lineHeight = BigDecimal.valueOf(14, 1);
-        if (textTheme != null) {
-            lineHeight = textTheme.getLineSpacing();
-        }
         FontStack fonts = new FontStack(textTheme);
 
         // TODO - theme margins
@@ -128,7 +121,7 @@ public class PdfRenderer extends SingleFileRenderer {
             // TODO - theme spacing
             pdfParagraph.setSpacingBefore(4);
             pdfParagraph.setSpacingAfter(4);
-            pdfParagraph.setMultipliedLeading(lineHeight.floatValue());
+            pdfParagraph.setMultipliedLeading(fonts.getLineSpacing().floatValue());
             writeContents(paragraph, fonts, new PhraseBackedContainer(pdfParagraph));
             container.add(pdfParagraph);
         } else if (block instanceof ItemisedList) {
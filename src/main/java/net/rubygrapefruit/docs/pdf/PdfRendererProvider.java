@@ -0,0 +1,30 @@
+package net.rubygrapefruit.docs.pdf;
+
+import net.rubygrapefruit.docs.renderer.Renderer;
+import net.rubygrapefruit.docs.renderer.RendererProvider;
+
+/**
+ * Provides the PDF renderer. Does not reference any iText classes, so that they are loaded only when PDF output is
+ * generated.
+ */
+public class PdfRendererProvider implements RendererProvider {
+    public String getName() {
+        return "pdf";
+    }
+
+    public String getDescription() {
+        return "Generate PDF output";
+    }
+
+    public String getFileExtension() {
+        return "pdf";
+    }
+
+    public boolean isDefault() {
+        return false;
+    }
+
+    public Renderer createRenderer() {
+        return new PdfRenderer();
+    }
+}
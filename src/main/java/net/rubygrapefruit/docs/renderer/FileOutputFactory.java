@@ -0,0 +1,17 @@
+package net.rubygrapefruit.docs.renderer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes each output file directly to the file system, creating its parent directory if required.
+ */
+public class FileOutputFactory implements OutputFactory {
+    public OutputStream create(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        return new BufferedOutputStream(new FileOutputStream(file));
+    }
+}
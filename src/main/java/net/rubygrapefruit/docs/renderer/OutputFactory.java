@@ -0,0 +1,15 @@
+package net.rubygrapefruit.docs.renderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Creates the streams that a renderer writes its output files to.
+ */
+public interface OutputFactory {
+    /**
+     * Creates a stream to write the content of the given file to. The caller is responsible for closing the stream.
+     */
+    OutputStream create(File file) throws IOException;
+}
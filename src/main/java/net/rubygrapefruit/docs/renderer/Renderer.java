@@ -6,5 +6,36 @@ import net.rubygrapefruit.docs.theme.Theme;
 import java.io.File;
 
 public abstract class Renderer {
-    public abstract void render(Document document, Theme theme, File outputFile) throws RenderException;
+    private static final OutputFactory FILE_OUTPUT_FACTORY = new FileOutputFactory();
+
+    /**
+     * Renders the given document, using the document builder of the given theme to build the renderable document.
+     */
+    public void render(Document document, Theme theme, File outputFile) throws RenderException {
+        render(build(document, theme), theme, outputFile);
+    }
+
+    /**
+     * Renders the given renderable document, which must have been built using the document builder of the given
+     * theme. The renderable document is not modified, so can be shared by several renderers.
+     */
+    public void render(RenderableDocument document, Theme theme, File outputFile) throws RenderException {
+        render(document, theme, outputFile, FILE_OUTPUT_FACTORY);
+    }
+
+    /**
+     * Renders the given renderable document, using the given factory to create the stream for each file that this
+     * renderer generates.
+     */
+    public abstract void render(RenderableDocument document, Theme theme, File outputFile, OutputFactory outputFactory)
+            throws RenderException;
+
+    /**
+     * Builds the renderable document for the given document and theme.
+     */
+    public static RenderableDocument build(Document document, Theme theme) {
+        RenderableDocument renderableDocument = new RenderableDocument();
+        theme.getDocumentBuilder().buildDocument(document, renderableDocument);
+        return renderableDocument;
+    }
 }
@@ -0,0 +1,33 @@
+package net.rubygrapefruit.docs.renderer;
+
+/**
+ * Makes a {@link Renderer} implementation available to the launcher. Implementations are discovered using {@link
+ * java.util.ServiceLoader}, so must have a public no-args constructor. They should be cheap to create, and should not
+ * load the renderer implementation until {@link #createRenderer()} is called.
+ */
+public interface RendererProvider {
+    /**
+     * Returns the name of the output format. This is used as the command-line option that selects the format.
+     */
+    String getName();
+
+    /**
+     * Returns a description of the output format, for the command-line help.
+     */
+    String getDescription();
+
+    /**
+     * Returns the extension to use for generated files.
+     */
+    String getFileExtension();
+
+    /**
+     * Returns true if this output format should be used when no output format is selected.
+     */
+    boolean isDefault();
+
+    /**
+     * Creates the renderer. The renderer is created when it is first used, and is shared by all builds and threads.
+     */
+    Renderer createRenderer();
+}
@@ -0,0 +1,39 @@
+package net.rubygrapefruit.docs.renderer;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a single output file to a given stream, such as stdout or the body of a response, without touching the file
+ * system. The stream is flushed, but not closed, when the output file has been written. Fails if the renderer attempts
+ * to generate more than one file.
+ */
+public class StreamOutputFactory implements OutputFactory {
+    private final OutputStream stream;
+    private boolean used;
+
+    public StreamOutputFactory(OutputStream stream) {
+        this.stream = stream;
+    }
+
+    public synchronized OutputStream create(File file) throws IOException {
+        if (used) {
+            throw new IOException(String.format(
+                    "Cannot generate '%s', as only a single file can be written to the output stream.", file));
+        }
+        used = true;
+        return new FilterOutputStream(stream) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
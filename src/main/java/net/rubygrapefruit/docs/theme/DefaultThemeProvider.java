@@ -0,0 +1,27 @@
+package net.rubygrapefruit.docs.theme;
+
+public class DefaultThemeProvider implements ThemeProvider {
+    public String getName() {
+        return "default";
+    }
+
+    public String getDescription() {
+        return "Use the default theme";
+    }
+
+    public String getFileSuffix() {
+        return "";
+    }
+
+    public boolean isDefault() {
+        return true;
+    }
+
+    public boolean supports(String format) {
+        return true;
+    }
+
+    public Theme createTheme() {
+        return new DefaultTheme();
+    }
+}
@@ -0,0 +1,27 @@
+package net.rubygrapefruit.docs.theme;
+
+public class FixedWidthThemeProvider implements ThemeProvider {
+    public String getName() {
+        return "fixed-width";
+    }
+
+    public String getDescription() {
+        return "Use the fixed width theme (HTML only)";
+    }
+
+    public String getFileSuffix() {
+        return "fixed";
+    }
+
+    public boolean isDefault() {
+        return false;
+    }
+
+    public boolean supports(String format) {
+        return format.equals("html");
+    }
+
+    public Theme createTheme() {
+        return new FixedWidthTheme();
+    }
+}
@@ -0,0 +1,27 @@
+package net.rubygrapefruit.docs.theme;
+
+public class MinimalThemeProvider implements ThemeProvider {
+    public String getName() {
+        return "minimal";
+    }
+
+    public String getDescription() {
+        return "Use the minimal theme";
+    }
+
+    public String getFileSuffix() {
+        return "minimal";
+    }
+
+    public boolean isDefault() {
+        return false;
+    }
+
+    public boolean supports(String format) {
+        return true;
+    }
+
+    public Theme createTheme() {
+        return new MinimalTheme();
+    }
+}
@@ -3,6 +3,10 @@ package net.rubygrapefruit.docs.theme;
 import net.rubygrapefruit.docs.model.Document;
 import net.rubygrapefruit.docs.renderer.RenderableDocument;
 
+/**
+ * Transforms a document into a renderable document. Builders that produce the same structure for a given document
+ * should be equal, so that the renderable document can be built once and shared by several renderers.
+ */
 public interface RenderableDocumentBuilder {
     void buildDocument(Document source, RenderableDocument target);
 }
@@ -8,6 +8,19 @@ import net.rubygrapefruit.docs.renderer.BuildableChunk;
 import net.rubygrapefruit.docs.renderer.RenderableDocument;
 
 public class SingleChunkBuilder implements RenderableDocumentBuilder {
+    /**
+     * All instances of this builder produce the same structure, so are considered equal.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null && obj.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
     public void buildDocument(Document source, RenderableDocument target) {
         BuildableChunk chunk = target.addChunk();
         chunk.setId(source.getId());
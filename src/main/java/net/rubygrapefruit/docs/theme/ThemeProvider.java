@@ -0,0 +1,41 @@
+package net.rubygrapefruit.docs.theme;
+
+/**
+ * Makes a {@link Theme} implementation available to the launcher. Implementations are discovered using {@link
+ * java.util.ServiceLoader}, so must have a public no-args constructor. They should be cheap to create, and should not
+ * load the theme implementation until {@link #createTheme()} is called.
+ */
+public interface ThemeProvider {
+    /**
+     * Returns the name of the theme. This is used as the command-line option that selects the theme.
+     */
+    String getName();
+
+    /**
+     * Returns a description of the theme, for the command-line help.
+     */
+    String getDescription();
+
+    /**
+     * Returns the suffix to add to the names of files generated using this theme, or an empty string for no suffix.
+     */
+    String getFileSuffix();
+
+    /**
+     * Returns true if this theme should be used when no theme is selected.
+     */
+    boolean isDefault();
+
+    /**
+     * Returns true if this theme can be used with the given output format.
+     *
+     * @param format The name of the output format, as returned by {@link
+     * net.rubygrapefruit.docs.renderer.RendererProvider#getName()}.
+     */
+    boolean supports(String format);
+
+    /**
+     * Creates the theme. The theme is created when it is first used, and is shared by all builds and threads.
+     */
+    Theme createTheme();
+}
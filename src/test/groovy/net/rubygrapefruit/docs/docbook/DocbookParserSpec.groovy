@@ -1,9 +1,14 @@
 package net.rubygrapefruit.docs.docbook
 
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
 import net.rubygrapefruit.docs.model.*
 
+import java.nio.ByteBuffer
+
 class DocbookParserSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
     final DocbookParser parser = new DocbookParser()
 
     def "converts book title"() {
@@ -538,6 +543,20 @@ a  bc
         contents[5].message == '<ulink>no "url" attribute specified in book.xml, line 10, column 21</ulink>'
     }
 
+    def "decodes a file and UTF-8 content the same way"() {
+        def bytes = '<book><title>na\u00efve \u20ac</title></book>'.getBytes('utf-8')
+        def file = tmpDir.newFile('book.xml')
+        file.bytes = bytes
+
+        when:
+        def fromFile = parser.parse(file)
+        def fromContent = parser.parse(ByteBuffer.wrap(bytes), file.path)
+
+        then:
+        fromFile.title.text == 'na\u00efve \u20ac'
+        fromContent.title.text == 'na\u00efve \u20ac'
+    }
+
     def parse(String string) {
         return parser.parse(string, "book.xml")
     }
@@ -3,6 +3,9 @@ package net.rubygrapefruit.docs.html
 import net.rubygrapefruit.docs.docbook.DocbookParser
 import net.rubygrapefruit.docs.markdown.MarkdownParser
 import net.rubygrapefruit.docs.model.Document
+import net.rubygrapefruit.docs.renderer.RenderException
+import net.rubygrapefruit.docs.renderer.Renderer
+import net.rubygrapefruit.docs.renderer.StreamOutputFactory
 import net.rubygrapefruit.docs.theme.DefaultTheme
 import net.rubygrapefruit.docs.theme.MinimalTheme
 import net.rubygrapefruit.docs.theme.SingleChunkBuilder
@@ -353,6 +356,58 @@ def</pre>
         page2.text.contains '''<div class="navbar footer"><a href="../out.html" class="previouslink">Previous</a><a href="../out.html" class="homelink">Home</a></div>'''
     }
 
+    def "can render a renderable document that has already been built"() {
+        given:
+        def doc = document '''para 1.
+'''
+        def theme = new MinimalTheme()
+        def renderableDocument = Renderer.build(doc, theme)
+        def out1 = new File(tmpDir.root, "out1.html")
+        def out2 = new File(tmpDir.root, "out2.html")
+
+        when:
+        renderer.render(renderableDocument, theme, out1)
+        renderer.render(renderableDocument, theme, out2)
+
+        then:
+        out1.text == rendered(doc)
+        out2.text == out1.text
+    }
+
+    def "can render a single page document to a stream"() {
+        given:
+        def doc = document '''para 1.
+'''
+        def theme = new MinimalTheme()
+        def stream = new ByteArrayOutputStream()
+
+        when:
+        renderer.render(Renderer.build(doc, theme), theme, new File(tmpDir.root, "out.html"),
+                new StreamOutputFactory(stream))
+
+        then:
+        stream.toString("utf-8") == rendered(doc)
+    }
+
+    def "cannot render a multi-page document to a stream"() {
+        given:
+        def doc = docbook '''
+<book>
+    <chapter><title>chapter 1</title></chapter>
+    <chapter><title>chapter 2</title></chapter>
+</book>
+'''
+        def theme = new DefaultTheme()
+
+        when:
+        renderer.render(Renderer.build(doc, theme), theme, new File(tmpDir.root, "out.html"),
+                new StreamOutputFactory(new ByteArrayOutputStream()))
+
+        then:
+        RenderException e = thrown()
+        e.cause.message.startsWith("Cannot generate")
+    }
+
     def document(String text) {
         return new MarkdownParser().parse(text, "document.md")
     }
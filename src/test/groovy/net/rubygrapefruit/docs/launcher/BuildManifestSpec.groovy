@@ -0,0 +1,143 @@
+package net.rubygrapefruit.docs.launcher
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class BuildManifestSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+
+    def "input is not up-to-date when it has not been built"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+
+        expect:
+        !manifest.isUpToDate(input, BuildManifest.hash(input), ".html")
+    }
+
+    def "input is up-to-date when its content, options and outputs are unchanged"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+        def output = file("input.md.html", "output")
+        def hash = BuildManifest.hash(input)
+
+        when:
+        manifest.built(input, hash, ".html", [output])
+        manifest.write()
+        def loaded = BuildManifest.load(tmpDir.root)
+
+        then:
+        loaded.isUpToDate(input, hash, ".html")
+    }
+
+    def "input is not up-to-date when its content has changed"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+        def output = file("input.md.html", "output")
+        manifest.built(input, BuildManifest.hash(input), ".html", [output])
+
+        when:
+        input.text = "changed"
+
+        then:
+        !manifest.isUpToDate(input, BuildManifest.hash(input), ".html")
+    }
+
+    def "input is not up-to-date when its options have changed"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+        def output = file("input.md.html", "output")
+        def hash = BuildManifest.hash(input)
+        manifest.built(input, hash, ".html", [output])
+
+        expect:
+        !manifest.isUpToDate(input, hash, ".html,.pdf")
+    }
+
+    def "input is not up-to-date when an output has been removed"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+        def output1 = file("input.md.html", "output")
+        def output2 = file("input.md.html.content/page1.html", "output")
+        def hash = BuildManifest.hash(input)
+        manifest.built(input, hash, ".html", [output1, output2])
+
+        when:
+        output2.delete()
+
+        then:
+        !manifest.isUpToDate(input, hash, ".html")
+    }
+
+    def "input is not up-to-date when it has been removed from the manifest"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+        def output = file("input.md.html", "output")
+        def hash = BuildManifest.hash(input)
+        manifest.built(input, hash, ".html", [output])
+
+        when:
+        manifest.remove(input, ".html")
+
+        then:
+        !manifest.isUpToDate(input, hash, ".html")
+    }
+
+    def "input can be built with different options into the same output directory"() {
+        def manifest = BuildManifest.load(tmpDir.root)
+        def input = file("input.md", "content")
+        def output1 = file("input.md.html", "output")
+        def output2 = file("input.md.minimal.html", "output")
+        def hash = BuildManifest.hash(input)
+
+        when:
+        manifest.built(input, hash, ".html", [output1])
+        manifest.built(input, hash, ".minimal.html", [output2])
+        manifest.write()
+        def loaded = BuildManifest.load(tmpDir.root)
+
+        then:
+        loaded.isUpToDate(input, hash, ".html")
+        loaded.isUpToDate(input, hash, ".minimal.html")
+
+        when:
+        loaded.remove(input, ".html")
+
+        then:
+        !loaded.isUpToDate(input, hash, ".html")
+        loaded.isUpToDate(input, hash, ".minimal.html")
+    }
+
+    def "outputs are recorded relative to the output directory"() {
+        def outputDir = new File(tmpDir.root, "out")
+        def manifest = BuildManifest.load(outputDir)
+        def input = file("input.md", "content")
+        def output1 = file("out/input.md.html", "output")
+        def output2 = file("out/input.md.html.content/page1.html", "output")
+        def hash = BuildManifest.hash(input)
+
+        when:
+        manifest.built(input, hash, ".html", [output1, output2])
+        manifest.write()
+        def properties = new Properties()
+        new File(outputDir, BuildManifest.FILE_NAME).withInputStream { properties.load(it) }
+
+        then:
+        properties.find { it.key.endsWith(".outputs") }.value == ["input.md.html", "input.md.html.content${File.separator}page1.html"].join(File.pathSeparator)
+        BuildManifest.load(new File(tmpDir.root, "other/../out")).isUpToDate(input, hash, ".html")
+    }
+
+    def "hash of content is the same as hash of file"() {
+        def input = file("input.md", "content")
+
+        expect:
+        BuildManifest.hash(input.bytes) == BuildManifest.hash(input)
+    }
+
+    def file(String path, String content) {
+        def file = new File(tmpDir.root, path)
+        file.parentFile.mkdirs()
+        file.text = content
+        return file
+    }
+}
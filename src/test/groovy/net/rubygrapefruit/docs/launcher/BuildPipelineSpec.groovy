@@ -0,0 +1,68 @@
+package net.rubygrapefruit.docs.launcher
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.util.concurrent.ExecutionException
+
+class BuildPipelineSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Registry registry = Registry.load(getClass().classLoader)
+    final BuildPipeline pipeline = new BuildPipeline(2, 1, 2, 1, 1)
+    final MemoryBudget budget = new MemoryBudget(1000)
+    final InputPrefetcher prefetcher = new InputPrefetcher([], 0, 0)
+    final BuildProgress progress = new BuildProgress(2)
+
+    def cleanup() {
+        pipeline.stop()
+    }
+
+    def "writes each output of each input"() {
+        def settings = settings(output('html', 'minimal'), output('html', 'default'))
+        def input1 = file("input1.md", "para 1")
+        def input2 = file("input2.md", "para 2")
+
+        when:
+        def result1 = pipeline.submit(new InputBuild(input1, settings).start(budget.acquire(10), prefetcher, progress))
+        def result2 = pipeline.submit(new InputBuild(input2, settings).start(budget.acquire(10), prefetcher, progress))
+
+        then:
+        result1.get()
+        result2.get()
+        new File(tmpDir.root, "out/input1.md.minimal.html").text.contains("para 1")
+        new File(tmpDir.root, "out/input1.md.html").text.contains("para 1")
+        new File(tmpDir.root, "out/input2.md.minimal.html").text.contains("para 2")
+        new File(tmpDir.root, "out/input2.md.html").text.contains("para 2")
+        progress.getSummary(System.nanoTime()).startsWith("Built 2 documents, 4 pages, ")
+    }
+
+    def "reports failure to build input"() {
+        def settings = settings(output('html', 'minimal'))
+        def input = new File(tmpDir.root, "missing.md")
+
+        when:
+        pipeline.submit(new InputBuild(input, settings).start(budget.acquire(10), prefetcher, progress)).get()
+
+        then:
+        ExecutionException e = thrown()
+        e.cause.message == "Could not parse '${input}'."
+        progress.getSummary(System.nanoTime()).startsWith("Built 0 documents, 0 pages, ")
+        progress.getSummary(System.nanoTime()).endsWith(" 1 document failed.")
+    }
+
+    def output(String format, String theme) {
+        return new Output(registry, registry.rendererProviders.find { it.name == format },
+                registry.themeProviders.find { it.name == theme })
+    }
+
+    def settings(Output... outputs) {
+        return new BuildSettings(registry, outputs as List, new File(tmpDir.root, "out"), null, null)
+    }
+
+    def file(String path, String content) {
+        def file = new File(tmpDir.root, path)
+        file.text = content
+        return file
+    }
+}
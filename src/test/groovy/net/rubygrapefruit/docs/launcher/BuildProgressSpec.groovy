@@ -0,0 +1,63 @@
+package net.rubygrapefruit.docs.launcher
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class BuildProgressSpec extends Specification {
+    final BuildProgress progress = new BuildProgress(100, 0)
+
+    def "reports throughput and estimated time remaining"() {
+        when:
+        16.times { progress.documentBuilt() }
+        3.times { progress.documentUpToDate() }
+        progress.documentFailed()
+        50.times { progress.pageWritten(1024 * 1024) }
+
+        then:
+        progress.getStatus(seconds(10)) == "Finished 20 of 100 documents, 2.0 documents/s, 5.0 pages/s, 5.0 MB/s written, ETA 40s."
+    }
+
+    def "reports unknown time remaining before any document has finished"() {
+        expect:
+        progress.getStatus(seconds(10)) == "Finished 0 of 100 documents, 0.0 documents/s, 0.0 pages/s, 0.0 MB/s written, ETA unknown."
+    }
+
+    def "formats long estimated time remaining"() {
+        when:
+        progress.documentBuilt()
+
+        then:
+        progress.getStatus(seconds(10)).endsWith("ETA 16m 30s.")
+        progress.getStatus(seconds(100)).endsWith("ETA 2h 45m.")
+    }
+
+    def "summarises build"() {
+        when:
+        4.times { progress.documentBuilt() }
+        8.times { progress.pageWritten(512 * 1024) }
+
+        then:
+        progress.getSummary(seconds(2)) == "Built 4 documents, 8 pages, 4.0 MB in 2s (2.0 documents/s, 4.0 pages/s, 2.0 MB/s)."
+    }
+
+    def "summarises build with up-to-date and failed documents"() {
+        when:
+        progress.documentBuilt()
+        progress.pageWritten(1024 * 1024)
+        3.times { progress.documentUpToDate() }
+        progress.documentFailed()
+
+        then:
+        progress.getSummary(seconds(1)) == "Built 1 document, 1 page, 1.0 MB in 1s (1.0 documents/s, 1.0 pages/s, 1.0 MB/s). Skipped 3 documents that were up-to-date. 1 document failed."
+    }
+
+    def "reports single document in status"() {
+        expect:
+        new BuildProgress(1, 0).getStatus(seconds(1)) == "Finished 0 of 1 document, 0.0 documents/s, 0.0 pages/s, 0.0 MB/s written, ETA unknown."
+    }
+
+    long seconds(long value) {
+        return TimeUnit.SECONDS.toNanos(value)
+    }
+}
@@ -0,0 +1,55 @@
+package net.rubygrapefruit.docs.launcher
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.util.concurrent.ForkJoinPool
+
+class InputBuildSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Registry registry = Registry.load(getClass().classLoader)
+    final MemoryBudget budget = new MemoryBudget(1000)
+    final InputPrefetcher prefetcher = new InputPrefetcher([], 0, 0)
+    final BuildProgress progress = new BuildProgress(1)
+
+    def "counts each PDF file once"() {
+        def build = pdfBuild()
+        def pool = new ForkJoinPool(1)
+
+        when:
+        def built = pool.invoke(InputBuild.createTask(build.start(budget.acquire(10), prefetcher, progress)))
+
+        then:
+        built
+        new File(tmpDir.root, "out/input.md.minimal.pdf").file
+        progress.getSummary(System.nanoTime()).startsWith("Built 1 document, 1 page, ")
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def "counts each PDF file once when built by a pipeline"() {
+        def build = pdfBuild()
+        def pipeline = new BuildPipeline(1, 1, 1, 1, 1)
+
+        when:
+        def built = pipeline.submit(build.start(budget.acquire(10), prefetcher, progress)).get()
+
+        then:
+        built
+        new File(tmpDir.root, "out/input.md.minimal.pdf").file
+        progress.getSummary(System.nanoTime()).startsWith("Built 1 document, 1 page, ")
+
+        cleanup:
+        pipeline.stop()
+    }
+
+    def pdfBuild() {
+        def input = new File(tmpDir.root, "input.md")
+        input.text = "para 1"
+        def output = new Output(registry, registry.rendererProviders.find { it.name == 'pdf' },
+                registry.themeProviders.find { it.name == 'minimal' })
+        return new InputBuild(input, new BuildSettings(registry, [output], new File(tmpDir.root, "out"), null, null))
+    }
+}
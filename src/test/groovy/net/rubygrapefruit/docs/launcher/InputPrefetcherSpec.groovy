@@ -0,0 +1,158 @@
+package net.rubygrapefruit.docs.launcher
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class InputPrefetcherSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+
+    def "takes content of input files that have been prefetched"() {
+        def build1 = build("input1.md", "content 1")
+        def build2 = build("input2.md", "content 2")
+        def prefetcher = new InputPrefetcher([build1, build2], 2, 1024)
+
+        when:
+        prefetcher.prefetch()
+
+        then:
+        new String(prefetcher.take(build1)) == "content 1"
+        new String(prefetcher.take(build2)) == "content 2"
+    }
+
+    def "content can be taken only once"() {
+        def build = build("input.md", "content")
+        def prefetcher = new InputPrefetcher([build], 1, 1024)
+
+        when:
+        prefetcher.prefetch()
+        prefetcher.take(build)
+
+        then:
+        prefetcher.take(build) == null
+    }
+
+    def "does not prefetch when depth is 0"() {
+        def build = build("input.md", "content")
+        def prefetcher = new InputPrefetcher([build], 0, 1024)
+
+        when:
+        prefetcher.start()
+
+        then:
+        prefetcher.take(build) == null
+    }
+
+    def "skips input file that is taken before it has been prefetched"() {
+        def build1 = build("input1.md", "content 1")
+        def build2 = build("input2.md", "content 2")
+        def prefetcher = new InputPrefetcher([build1, build2], 2, 1024)
+
+        when:
+        def content = prefetcher.take(build1)
+        prefetcher.prefetch()
+
+        then:
+        content == null
+        prefetcher.take(build1) == null
+        new String(prefetcher.take(build2)) == "content 2"
+    }
+
+    def "stops reading ahead when the limit is reached, until content is taken"() {
+        def build1 = build("input1.md", "0123456789")
+        def build2 = build("input2.md", "0123456789")
+        def build3 = build("input3.md", "0123456789")
+        def prefetcher = new InputPrefetcher([build1, build2, build3], 3, 25)
+
+        when:
+        prefetcher.start()
+        assert waitFor { prefetcher.isPrefetched(build2) }
+        Thread.sleep(100)
+
+        then:
+        !prefetcher.isPrefetched(build3)
+
+        when:
+        prefetcher.take(build1)
+
+        then:
+        waitFor { prefetcher.isPrefetched(build3) }
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "stops reading ahead when the depth is reached, until content is taken"() {
+        def build1 = build("input1.md", "content 1")
+        def build2 = build("input2.md", "content 2")
+        def prefetcher = new InputPrefetcher([build1, build2], 1, 1024)
+
+        when:
+        prefetcher.start()
+        assert waitFor { prefetcher.isPrefetched(build1) }
+        Thread.sleep(100)
+
+        then:
+        !prefetcher.isPrefetched(build2)
+
+        when:
+        prefetcher.take(build1)
+
+        then:
+        waitFor { prefetcher.isPrefetched(build2) }
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "take returns null for input file that is waiting for the limit, and the file is not read later"() {
+        def build1 = build("input1.md", "0123456789")
+        def build2 = build("input2.md", "0123456789")
+        def build3 = build("input3.md", "0123456789")
+        def prefetcher = new InputPrefetcher([build1, build2, build3], 3, 15)
+
+        when:
+        prefetcher.start()
+        assert waitFor { prefetcher.isPrefetched(build1) }
+        def content = prefetcher.take(build2)
+        prefetcher.take(build1)
+        assert waitFor { prefetcher.isPrefetched(build3) }
+
+        then:
+        content == null
+        !prefetcher.isPrefetched(build2)
+        prefetcher.take(build2) == null
+        new String(prefetcher.take(build3)) == "0123456789"
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "reads input files that are larger than the limit"() {
+        def build = build("input.md", "content larger than the limit")
+        def prefetcher = new InputPrefetcher([build], 1, 1)
+
+        when:
+        prefetcher.prefetch()
+
+        then:
+        new String(prefetcher.take(build)) == "content larger than the limit"
+    }
+
+    boolean waitFor(Closure<Boolean> condition) {
+        def timeout = System.currentTimeMillis() + 5000
+        while (!condition.call()) {
+            if (System.currentTimeMillis() > timeout) {
+                return false
+            }
+            Thread.sleep(10)
+        }
+        return true
+    }
+
+    def build(String path, String content) {
+        def file = new File(tmpDir.root, path)
+        file.text = content
+        return new InputBuild(file, new BuildSettings(new Registry([], [], []), [], tmpDir.root, null, null))
+    }
+}
@@ -0,0 +1,43 @@
+package net.rubygrapefruit.docs.launcher
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class InputWatcherSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+
+    def "rebuilds each build of an input file that is built more than once"() {
+        def build1 = build("docs/a.md", "out1")
+        def build2 = build("docs/a.md", "out2")
+        def other = build("docs/b.md", "out1")
+        def watcher = new InputWatcher([build1, other, build2], null, [])
+
+        expect:
+        watcher.getBuilds(file("docs/a.md").toPath()) == [build1, build2]
+        watcher.getBuilds(file("docs/b.md").toPath()) == [other]
+    }
+
+    def "matches changes to input files given as paths that are not normalized"() {
+        def build1 = build("./docs/a.md", "out1")
+        def build2 = build("docs/../docs/a.md", "out2")
+        def watcher = new InputWatcher([build1, build2], null, [])
+        def dir = file("docs").toPath()
+
+        expect:
+        watcher.getBuilds(dir.resolve("a.md")) == [build1, build2]
+        watcher.getBuilds(dir.resolve("sub/../a.md")) == [build1, build2]
+        watcher.getBuilds(dir.resolve("b.md")) == []
+    }
+
+    def build(String path, String outDir) {
+        def input = file(path)
+        input.parentFile.mkdirs()
+        input.text = "content"
+        return new InputBuild(input, new BuildSettings(new Registry([], [], []), [], file(outDir), null, null))
+    }
+
+    def file(String path) {
+        return new File(tmpDir.root, path)
+    }
+}
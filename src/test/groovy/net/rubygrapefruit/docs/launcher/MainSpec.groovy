@@ -0,0 +1,95 @@
+package net.rubygrapefruit.docs.launcher
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class MainSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Main main = new Main()
+
+    def "builds the input files listed in a project file"() {
+        file("project/docs/a.md", "a")
+        file("project/docs/b.md", "b")
+        def project = file("project/docs.project", """
+# comment
+
+docs/a.md
+   docs/b.md
+""")
+
+        expect:
+        main.run(["--out", "out", "--html", "--minimal", "--project", project.path] as String[], tmpDir.root) == 0
+        new File(tmpDir.root, "out/a.md.minimal.html").file
+        new File(tmpDir.root, "out/b.md.minimal.html").file
+    }
+
+    def "lines of a project file can select the output directory, formats and themes"() {
+        file("project/a.md", "a")
+        file("project/b.md", "b")
+        file("project/c.md", "c")
+        def project = file("project/docs.project", """
+a.md
+--out b-out --pdf b.md
+--html --minimal c.md
+""")
+
+        expect:
+        main.run(["--out", "out", "--html", "--minimal", "--project", project.path] as String[], tmpDir.root) == 0
+        new File(tmpDir.root, "out/a.md.minimal.html").file
+        new File(tmpDir.root, "project/b-out/b.md.minimal.pdf").file
+        !new File(tmpDir.root, "project/b-out/b.md.minimal.html").exists()
+        new File(tmpDir.root, "out/c.md.minimal.html").file
+    }
+
+    def "fails when the project file is invalid"() {
+        file("project/a.md", "a")
+        def project = file("project/docs.project", "--unknown a.md")
+
+        expect:
+        main.run(["--out", "out", "--project", project.path] as String[], tmpDir.root) == 1
+        !new File(tmpDir.root, "out").exists()
+    }
+
+    def "fails when the project file does not exist"() {
+        expect:
+        main.run(["--out", "out", "--project", "missing.project"] as String[], tmpDir.root) == 1
+    }
+
+    def "builds the remaining input files in parallel when some input files cannot be built"() {
+        file("a.md", "a")
+        file("b.md", "b")
+        file("c.md", "c")
+        def missing1 = new File(tmpDir.root, "missing1.md")
+        def missing2 = new File(tmpDir.root, "missing2.md")
+        def errors = new ByteArrayOutputStream()
+        def originalErr = System.err
+        System.err = new PrintStream(errors, true)
+
+        when:
+        def result = main.run(["--threads", "4", "--out", "out", "--html", "--minimal", "a.md", "missing2.md", "b.md",
+                "missing1.md", "c.md"] as String[], tmpDir.root)
+
+        then:
+        result == 1
+        new File(tmpDir.root, "out/a.md.minimal.html").file
+        new File(tmpDir.root, "out/b.md.minimal.html").file
+        new File(tmpDir.root, "out/c.md.minimal.html").file
+
+        and:
+        def output = errors.toString()
+        output.indexOf("Could not build '${missing2}'.") >= 0
+        output.indexOf("Could not build '${missing2}'.") < output.indexOf("Could not build '${missing1}'.")
+        output.contains("2 of 5 inputs could not be built.")
+
+        cleanup:
+        System.err = originalErr
+    }
+
+    def file(String path, String content) {
+        def file = new File(tmpDir.root, path)
+        file.parentFile.mkdirs()
+        file.text = content
+        return file
+    }
+}
@@ -0,0 +1,91 @@
+package net.rubygrapefruit.docs.launcher
+
+import net.rubygrapefruit.docs.markdown.MarkdownParser
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class MemoryBudgetSpec extends Specification {
+    final MemoryBudget budget = new MemoryBudget(100)
+
+    def "admits reservations that fit within the budget"() {
+        when:
+        budget.acquire(40)
+        budget.acquire(60)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "admits reservation that is larger than the budget when nothing else is reserved"() {
+        when:
+        budget.acquire(1000).release()
+        budget.acquire(1000)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "blocks reservation that is larger than the budget until nothing else is reserved"() {
+        def reservation = budget.acquire(10)
+        def admitted = new CountDownLatch(1)
+
+        when:
+        Thread.start {
+            budget.acquire(1000)
+            admitted.countDown()
+        }
+
+        then:
+        !admitted.await(100, TimeUnit.MILLISECONDS)
+
+        when:
+        reservation.release()
+
+        then:
+        admitted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "blocks until enough of the budget has been released"() {
+        def reservation = budget.acquire(80)
+        def admitted = new CountDownLatch(1)
+
+        when:
+        Thread.start {
+            budget.acquire(40)
+            admitted.countDown()
+        }
+
+        then:
+        !admitted.await(100, TimeUnit.MILLISECONDS)
+
+        when:
+        reservation.resize(60)
+
+        then:
+        admitted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "releasing a reservation more than once has no effect"() {
+        def reservation = budget.acquire(50)
+
+        when:
+        reservation.release()
+        reservation.release()
+        budget.acquire(100)
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "estimates footprint of document from its nodes"() {
+        def document = new MarkdownParser().parse('''heading
+=======
+para with `code` inline
+''', "document.md")
+
+        expect:
+        MemoryBudget.estimate(document) > 5 * MemoryBudget.BYTES_PER_NODE
+    }
+}
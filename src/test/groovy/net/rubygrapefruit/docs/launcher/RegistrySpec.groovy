@@ -0,0 +1,78 @@
+package net.rubygrapefruit.docs.launcher
+
+import net.rubygrapefruit.docs.docbook.DocbookParser
+import net.rubygrapefruit.docs.html.HtmlParser
+import net.rubygrapefruit.docs.markdown.MarkdownParser
+import net.rubygrapefruit.docs.parser.ParserProvider
+import spock.lang.Specification
+
+class RegistrySpec extends Specification {
+    final Registry registry = Registry.load(getClass().classLoader)
+
+    def "discovers the built-in renderers and themes"() {
+        expect:
+        registry.rendererProviders*.name == ['html', 'pdf']
+        registry.themeProviders*.name == ['minimal', 'fixed-width', 'default']
+    }
+
+    def "selects parser based on file name"() {
+        expect:
+        registry.createParser(new File("doc.xml")) instanceof DocbookParser
+        registry.createParser(new File("doc.html")) instanceof HtmlParser
+        registry.createParser(new File("doc.md")) instanceof MarkdownParser
+    }
+
+    def "uses default parser for unrecognised file name"() {
+        expect:
+        registry.createParser(new File("doc.txt")) instanceof MarkdownParser
+    }
+
+    def "creates renderer on first use and reuses it"() {
+        def provider = registry.rendererProviders[0]
+
+        expect:
+        registry.getRenderer(provider).is(registry.getRenderer(provider))
+    }
+
+    def "does not load PDF library when building HTML"() {
+        def classpath = System.getProperty("java.class.path").split(File.pathSeparator)
+        def loader = new RecordingClassLoader(classpath.collect { new File(it).toURI().toURL() } as URL[])
+        def registry = loader.loadClass(Registry.name).load(loader)
+
+        when:
+        def renderer = registry.getRenderer(registry.rendererProviders.find { it.name == 'html' })
+        def theme = registry.getTheme(registry.themeProviders.find { it.name == 'default' })
+
+        then:
+        renderer != null
+        theme != null
+        loader.loaded.contains(Registry.name)
+        !loader.loaded.any { it.startsWith("com.itextpdf.") }
+    }
+
+    def "fails when no parser can parse file"() {
+        def provider = Mock(ParserProvider)
+        def registry = new Registry([provider], [], [])
+
+        when:
+        registry.createParser(new File("doc.txt"))
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "No parser available for 'doc.txt'."
+    }
+
+    static class RecordingClassLoader extends URLClassLoader {
+        final Set<String> loaded = Collections.synchronizedSet(new HashSet<String>())
+
+        RecordingClassLoader(URL[] urls) {
+            super(urls, (ClassLoader) null)
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) {
+            loaded.add(name)
+            return super.loadClass(name, resolve)
+        }
+    }
+}
@@ -2,9 +2,15 @@ package net.rubygrapefruit.docs.markdown
 
 import spock.lang.Specification
 import net.rubygrapefruit.docs.model.*
+import net.rubygrapefruit.docs.parser.ParseListener
 import spock.lang.Ignore
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+
+import java.nio.ByteBuffer
 
 class MarkdownParserSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
     final MarkdownParser parser = new MarkdownParser()
 
     def "an empty string converts to an empty document"() {
@@ -57,6 +63,18 @@ sentence 1.3
         paras[0].text == '''sentence 1.1 sentence 1.2 sentence 1.3 sentence 1.4 sentence 1.5'''
     }
 
+    def "can parse a paragraph with unterminated emphasis and many tokens"() {
+        def text = '*unterminated' + (' word' * 10000)
+
+        when:
+        def doc = parse text
+
+        then:
+        def paras = doc.getContents(Paragraph)
+        paras.size() == 1
+        paras[0].text == text
+    }
+
     def "normalises whitespace in paragraph"() {
 
         when:
@@ -632,6 +650,48 @@ text `code`
         paras[0].text == 'para 1. sentence 1.2'
     }
 
+    def "can parse from UTF-8 content"() {
+        when:
+        def doc = parse ByteBuffer.wrap('para \u00e9\u20ac\ud83d\ude00 para'.getBytes('utf-8'))
+
+        then:
+        def paras = doc.getContents(Paragraph)
+        paras.size() == 1
+        paras[0].text == 'para \u00e9\u20ac\ud83d\ude00 para'
+    }
+
+    def "can parse from file"() {
+        def file = tmpDir.newFile("document.md")
+        file.setText('''Title \u00e9
+=======
+
+para 1
+''', 'utf-8')
+
+        when:
+        def doc = parser.parse(file)
+
+        then:
+        doc.contents[0].title.text == 'Title \u00e9'
+        doc.contents[0].contents[0].text == 'para 1'
+    }
+
+    def "notifies listener before the document is finished"() {
+        def listener = Mock(ParseListener)
+
+        given:
+        parser.listener = listener
+
+        when:
+        def doc = parse '''Title
+=====
+'''
+
+        then:
+        1 * listener.parsed({ it.contents[0].id == null })
+        doc.contents[0].id == 'title'
+    }
+
     def parse(def text) {
         return parser.parse(text, "document.md")
     }
@@ -0,0 +1,78 @@
+package net.rubygrapefruit.docs.parser
+
+import spock.lang.Specification
+
+class AlternativesSpec extends Specification {
+    final digits = Productions.matchAtLeastOneOf(CharClass.range('0' as char, '9' as char))
+    final letters = Productions.matchAtLeastOneOf(CharClass.range('a' as char, 'z' as char))
+    final plus = Productions.match('+' as char)
+
+    def "consumes the first alternative that matches"() {
+        def alternatives = new Alternatives([plus, digits, letters])
+        def input = new CharSequenceCharStream("abc123+")
+
+        expect:
+        alternatives.consumeFirst(input) == letters
+        alternatives.consumeFirst(input) == digits
+        alternatives.consumeFirst(input) == plus
+        alternatives.consumeFirst(input) == null
+    }
+
+    def "does not try an alternative that cannot start with the next character"() {
+        def other = Mock(Production)
+        def alternatives = new Alternatives([digits, other])
+        def input = new CharSequenceCharStream("12")
+
+        when:
+        def result = alternatives.consumeFirst(input)
+
+        then:
+        result == digits
+        0 * other._
+    }
+
+    def "tries alternatives in order when more than one can start with the next character"() {
+        def abc = Productions.match("abc")
+        def alternatives = new Alternatives([abc, letters])
+
+        expect:
+        alternatives.consumeFirst(new CharSequenceCharStream("abc")) == abc
+        alternatives.consumeFirst(new CharSequenceCharStream("abd")) == letters
+    }
+
+    def "always tries an alternative that does not declare its first characters"() {
+        def other = Mock(Production)
+        def alternatives = new Alternatives([digits, other])
+        def input = new CharSequenceCharStream("\u00e9")
+
+        when:
+        def result = alternatives.consumeFirst(input)
+
+        then:
+        result == other
+        1 * other.match(input) >> { input.consume(CharClass.anyExcept()) }
+    }
+
+    def "tries only the alternatives that do not declare their first characters at the end of the input"() {
+        def other = Mock(Production)
+        def alternatives = new Alternatives([digits, other])
+        def input = new CharSequenceCharStream("")
+
+        when:
+        def result = alternatives.consumeFirst(input)
+
+        then:
+        result == null
+        1 * other.match(input)
+    }
+
+    def "first characters are the union of the first characters of the alternatives"() {
+        def alternatives = Productions.matchFirstOf(digits, plus)
+
+        expect:
+        alternatives.firstChars.contains((int) ('5' as char))
+        alternatives.firstChars.contains((int) ('+' as char))
+        !alternatives.firstChars.contains((int) ('a' as char))
+        Productions.matchFirstOf(digits, Mock(Production)).firstChars.contains((int) ('a' as char))
+    }
+}
@@ -0,0 +1,105 @@
+package net.rubygrapefruit.docs.parser
+
+import spock.lang.Specification
+
+class BufferPoolSpec extends Specification {
+    final BufferPool pool = new BufferPool()
+
+    def "reuses storage once the parse that leased it has finished"() {
+        when:
+        def marker = pool.enter()
+        def storage1 = pool.acquire()
+        def storage2 = pool.acquire()
+        pool.exit(marker)
+
+        marker = pool.enter()
+        def storage3 = pool.acquire()
+        def storage4 = pool.acquire()
+        def storage5 = pool.acquire()
+        pool.exit(marker)
+
+        then:
+        [storage3, storage4] as Set == [storage1, storage2] as Set
+        !storage5.is(storage1)
+        !storage5.is(storage2)
+    }
+
+    def "does not reuse storage that is leased by an enclosing parse"() {
+        when:
+        def outer = pool.enter()
+        def storage1 = pool.acquire()
+        def inner = pool.enter()
+        def storage2 = pool.acquire()
+        pool.exit(inner)
+        def storage3 = pool.acquire()
+        pool.exit(outer)
+
+        then:
+        storage3.is(storage2)
+        !storage3.is(storage1)
+    }
+
+    def "does not pool storage outside of a parse"() {
+        when:
+        def storage1 = pool.acquire()
+        def marker = pool.enter()
+        def storage2 = pool.acquire()
+        pool.exit(marker)
+
+        then:
+        !storage2.is(storage1)
+    }
+
+    def "discards storage that has grown too large"() {
+        when:
+        def marker = pool.enter()
+        def storage1 = pool.acquire()
+        storage1.chars = new char[BufferPool.MAX_POOLED_SIZE * 2]
+        pool.exit(marker)
+        marker = pool.enter()
+        def storage2 = pool.acquire()
+        pool.exit(marker)
+
+        then:
+        !storage2.is(storage1)
+        storage2.chars.length == BufferPool.BUFFER_SIZE
+    }
+
+    def "reuses mark offsets that have grown"() {
+        def pool = BufferPool.current()
+        def marker = pool.enter()
+        def buffer = new Buffer(new StringReader("ab"))
+        100.times { buffer.start() }
+        pool.exit(marker)
+
+        when:
+        marker = pool.enter()
+        def storage = pool.acquire()
+
+        then:
+        storage.markOffsets.length >= 100
+
+        cleanup:
+        pool.exit(marker)
+    }
+
+    def "buffer uses storage from the pool of the current thread"() {
+        def pool = BufferPool.current()
+        def marker = pool.enter()
+        def buffer1 = new Buffer(new StringReader("ab"))
+        buffer1.consume('a' as char)
+        pool.exit(marker)
+
+        when:
+        marker = pool.enter()
+        def buffer2 = new Buffer(new StringReader("cd"))
+
+        then:
+        buffer2.consume('c' as char)
+        buffer2.consume('d' as char)
+        !buffer2.consume('d' as char)
+
+        cleanup:
+        pool.exit(marker)
+    }
+}
@@ -15,6 +15,20 @@ class BufferSpec extends Specification {
         buffer.value == 'ab'
     }
 
+    def "slice is a view of the value of the production"() {
+        def buffer = buffer('abcd')
+        def production = matchAB()
+
+        expect:
+        buffer.consume(production)
+        def slice = buffer.slice
+        slice.length() == 2
+        slice.charAt(0) == 'a' as char
+        slice.charAt(1) == 'b' as char
+        slice.subSequence(1, 2) == 'b'
+        slice.toString() == 'ab'
+    }
+
     def "production cannot consume beyond the end of input"() {
         def buffer = buffer('a')
         def production = { CharStream stream ->
@@ -143,6 +157,74 @@ class BufferSpec extends Specification {
         buffer.endLine == 4
     }
 
+    def "location is made available once the buffer has discarded the start of the line"() {
+        def buffer = buffer('ab\nabababab', 4)
+
+        expect:
+        buffer.consume(matchAB())
+        buffer.consume(matchEOL())
+        buffer.consume(matchAB())
+        buffer.consume(matchAB())
+        buffer.consume(matchAB())
+        buffer.consume(matchAB())
+        buffer.startLine == 2
+        buffer.startColumn == 7
+        buffer.endLine == 2
+        buffer.endColumn == 8
+    }
+
+    def "line index does not grow as the buffer discards lines"() {
+        def buffer = buffer('ab\r\nab\n' * 50 + 'ab\rab', 4)
+
+        expect:
+        101.times { line ->
+            assert buffer.consume(matchAB())
+            assert buffer.startLine == line + 1
+            assert buffer.startColumn == 1
+            assert buffer.endColumn == 2
+            assert buffer.consume(matchEOL())
+            assert buffer.indexedLineCount <= 2
+        }
+        buffer.consume(matchAB())
+        buffer.startLine == 102
+        buffer.endColumn == 2
+    }
+
+    def "location of production is correct when it follows a rewind"() {
+        def buffer = buffer('ab\nab')
+        def production = { CharStream stream ->
+            stream.consume(matchAB())
+            stream.consume(matchEOL())
+            stream.rewind()
+            stream.consume(matchAB())
+            assert stream.startLine == 1
+            assert stream.startColumn == 1
+        } as Production<CharStream>
+
+        expect:
+        buffer.consume(production)
+        buffer.endLine == 1
+        buffer.endColumn == 2
+    }
+
+    def "CR does not take up a column when followed by LF"() {
+        def crlf = buffer('a\r\nb')
+        def cr = buffer('a\rb')
+        def production = { CharStream stream ->
+            stream.consume('a' as char)
+            stream.consume('\r' as char)
+        } as Production<CharStream>
+
+        expect:
+        crlf.consume(production)
+        crlf.endLine == 1
+        crlf.endColumn == 1
+
+        cr.consume(production)
+        cr.endLine == 2
+        cr.endColumn == 0
+    }
+
     def "no characters are consumed when nested production unwinds"() {
         def buffer = buffer('abab')
         def nested1 = { CharStream stream ->
@@ -216,20 +298,103 @@ class BufferSpec extends Specification {
         buffer.consume('b' as char)
     }
 
-    def "topmost production cannot span more than one buffer"() {
-        def buffer = buffer('abab', 3)
+    def "can consume a run of characters across the end of the buffer"() {
+        def buffer = buffer('aabaab abab\nab', 4)
+        def production = { CharStream stream ->
+            stream.consumeRun(CharClass.anyOf('a' as char, 'b' as char))
+        } as Production<CharStream>
+
+        expect:
+        buffer.consume(production)
+        buffer.value == 'aabaab'
+        buffer.startColumn == 1
+        buffer.endColumn == 6
+        !buffer.consume(production)
+        buffer.consume(' ' as char)
+        buffer.consume(production)
+        buffer.value == 'abab'
+        buffer.startColumn == 8
+        buffer.endColumn == 11
+    }
+
+    def "can consume a run of characters that includes line separators"() {
+        def buffer = buffer('ab\r\nab\nc', 4)
+        def production = { CharStream stream ->
+            stream.consumeRun(CharClass.anyExcept('c' as char))
+        } as Production<CharStream>
+
+        expect:
+        buffer.consume(production)
+        buffer.value == 'ab\r\nab\n'
+        buffer.endLine == 3
+        buffer.endColumn == 0
+    }
+
+    def "marks can be nested to any depth"() {
+        def buffer = buffer('a' * 100 + 'b')
+
+        when:
+        100.times {
+            buffer.start()
+            assert buffer.consume('a' as char)
+        }
+
+        then:
+        99.times {
+            buffer.commit()
+        }
+        buffer.value == 'a' * 99
+        buffer.commit()
+        buffer.value == 'a' * 100
+        !buffer.consume('a' as char)
+    }
+
+    def "topmost production can span more than one buffer"() {
+        def buffer = buffer('abababab', 3)
+        def production = { CharStream stream ->
+            4.times {
+                stream.consume('a' as char)
+                stream.consume('b' as char)
+            }
+        } as Production<CharStream>
+
+        expect:
+        buffer.consume(production)
+        buffer.value == 'abababab'
+        buffer.capacity >= 8
+    }
+
+    def "can rewind to start of production that spans more than one buffer"() {
+        def buffer = buffer('abababac', 3)
         def production = { CharStream stream ->
             stream.consume('a' as char)
-            stream.consume('b' as char)
-            stream.consume('a' as char)
+            stream.start()
+            while (stream.consume('b' as char) && stream.consume('a' as char)) {
+            }
+            if (stream.consume('c' as char)) {
+                stream.rollback()
+            } else {
+                stream.commit()
+            }
             stream.consume('b' as char)
         } as Production<CharStream>
 
-        when:
+        expect:
         buffer.consume(production)
+        buffer.value == 'ab'
+    }
 
-        then:
-        UnsupportedOperationException e = thrown()
+    def "buffer does not grow when productions are shorter than the buffer"() {
+        def buffer = buffer('ab' * 100, 4)
+        def production = matchAB()
+
+        expect:
+        100.times {
+            assert buffer.consume(production)
+            assert buffer.value == 'ab'
+        }
+        !buffer.consume(production)
+        buffer.capacity == 4
     }
 
     def "topmost production can span more than one buffer when it moves the mark"() {
@@ -247,6 +412,36 @@ class BufferSpec extends Specification {
         buffer.value == 'ab'
     }
 
+    def "memoised production is matched once at each position"() {
+        def buffer = buffer('<a>\n<a>', 4)
+        def matches = 0
+        def tag = { CharStream stream ->
+            matches++
+            if (!stream.consume('<' as char) || !stream.consume('a' as char) || !stream.consume('>' as char)) {
+                return null
+            }
+            return 'a'
+        } as ValueProducingProduction<CharStream, String>
+        def element = { CharStream stream ->
+            assert stream.consumeMemoized(tag) == 'a'
+            stream.consume(matchEOL())
+            assert stream.consumeMemoized(tag) == 'a'
+            stream.rewind()
+            assert stream.consumeMemoized(tag) == 'a'
+            assert stream.consumeMemoized(tag) == null
+            assert stream.consumeMemoized(tag) == null
+        } as Production<CharStream>
+
+        expect:
+        buffer.consume(element)
+        buffer.value == '<a>'
+        buffer.startLine == 1
+        buffer.endColumn == 3
+        matches == 3
+        buffer.memoHits == 2
+        buffer.memoMisses == 3
+    }
+
     def matchAB() {
         return { CharStream stream ->
             if (!stream.consume('a' as char)) {
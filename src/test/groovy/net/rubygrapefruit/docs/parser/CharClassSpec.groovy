@@ -0,0 +1,44 @@
+package net.rubygrapefruit.docs.parser
+
+import spock.lang.Specification
+
+class CharClassSpec extends Specification {
+    def "any of contains only the given characters"() {
+        def chars = CharClass.anyOf('b' as char, 'a' as char, '\u20ac' as char)
+
+        expect:
+        contains(chars, 'a')
+        contains(chars, 'b')
+        contains(chars, '\u20ac')
+        !contains(chars, 'c')
+        !contains(chars, '\u00e9')
+        !chars.contains(-1)
+    }
+
+    def "any except contains all but the given characters"() {
+        def chars = CharClass.anyExcept('\n' as char, '\u20ac' as char)
+
+        expect:
+        contains(chars, 'a')
+        contains(chars, '\r')
+        contains(chars, '\u00e9')
+        !contains(chars, '\n')
+        !contains(chars, '\u20ac')
+        !chars.contains(-1)
+    }
+
+    def "range contains the characters in the range"() {
+        def chars = CharClass.range('0' as char, '9' as char)
+
+        expect:
+        contains(chars, '0')
+        contains(chars, '9')
+        !contains(chars, 'a')
+        !contains(chars, '\u0660')
+        contains(CharClass.range('\u00e0' as char, '\u00ff' as char), '\u00e9')
+    }
+
+    boolean contains(CharClass chars, String ch) {
+        return chars.contains((int) ch.charAt(0))
+    }
+}
@@ -0,0 +1,47 @@
+package net.rubygrapefruit.docs.parser
+
+import spock.lang.Specification
+
+class CharSequenceCharStreamSpec extends Specification {
+    def "production can match a sequence of characters"() {
+        def input = new CharSequenceCharStream(new StringBuilder('abc'))
+        def production = { CharStream stream ->
+            assert stream.consume('a' as char)
+            assert stream.consume('b' as char)
+        } as Production<CharStream>
+
+        expect:
+        input.consume(production)
+        input.value == 'ab'
+        input.startColumn == 1
+        input.endColumn == 2
+    }
+
+    def "production cannot consume beyond the end of input"() {
+        def input = new CharSequenceCharStream('a')
+        def production = { CharStream stream ->
+            assert stream.consume('a' as char)
+            assert !stream.consume('b' as char)
+        } as Production<CharStream>
+
+        expect:
+        input.consume(production)
+        input.value == 'a'
+    }
+
+    def "production can span the whole input and rewind to its start"() {
+        def text = 'ab' * 10000
+        def input = new CharSequenceCharStream(text)
+        def production = { CharStream stream ->
+            while (stream.consumeAnyExcept()) {
+            }
+            stream.rewind()
+            while (stream.consumeAnyExcept()) {
+            }
+        } as Production<CharStream>
+
+        expect:
+        input.consume(production)
+        input.value == text
+    }
+}
@@ -0,0 +1,66 @@
+package net.rubygrapefruit.docs.parser
+
+import spock.lang.Specification
+
+class LookaheadStreamSpec extends Specification {
+    def "can peek ahead and consume elements in order"() {
+        def stream = stream(1..5)
+
+        expect:
+        stream.peek() == 1
+        stream.peek(4) == 5
+        stream.peek(5) == null
+        stream.next() == 1
+        stream.peek(3) == 5
+        stream.next() == 2
+        stream.next() == 3
+        stream.next() == 4
+        stream.next() == 5
+        stream.next() == null
+        stream.peek() == null
+    }
+
+    def "can look ahead further than the initial capacity while elements wrap around"() {
+        def stream = stream(1..1000)
+
+        expect:
+        (1..10).each { assert stream.next() == it }
+        stream.peek(989) == 1000
+        (11..500).each { assert stream.next() == it }
+        stream.peek(499) == 1000
+        (501..1000).each { assert stream.next() == it }
+        stream.next() == null
+    }
+
+    def "passes the buffered elements to readNext"() {
+        def seen = []
+        def stream = new LookaheadStream<Integer>([1, 2]) {
+            int nextValue = 3
+
+            @Override
+            protected void readNext(Collection<Integer> elements) {
+                seen << elements.toList()
+                if (nextValue <= 4) {
+                    elements.add(nextValue++)
+                }
+            }
+        }
+
+        expect:
+        stream.next() == 1
+        stream.peek(2) == 4
+        seen == [[2], [2, 3]]
+    }
+
+    def stream(Iterable<Integer> values) {
+        def iterator = values.iterator()
+        return new LookaheadStream<Integer>() {
+            @Override
+            protected void readNext(Collection<Integer> elements) {
+                if (iterator.hasNext()) {
+                    elements.add(iterator.next())
+                }
+            }
+        }
+    }
+}
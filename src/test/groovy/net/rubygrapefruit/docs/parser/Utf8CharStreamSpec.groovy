@@ -0,0 +1,170 @@
+package net.rubygrapefruit.docs.parser
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+
+class Utf8CharStreamSpec extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+
+    def "production can match ASCII characters"() {
+        def input = stream('abc')
+
+        expect:
+        input.consume(matchAnyExcept('c'))
+        input.value == 'ab'
+    }
+
+    def "decodes multi-byte characters"() {
+        def input = stream('\u00e9\u20ac\u0800a')
+
+        expect:
+        input.consume(matchAnyExcept('a'))
+        input.value == '\u00e9\u20ac\u0800'
+        input.startColumn == 1
+        input.endColumn == 3
+    }
+
+    def "slice is a view of ASCII value and a decoded copy otherwise"() {
+        def input = stream('ab \u00e9\u20ac')
+
+        expect:
+        input.consume(matchAnyExcept(' '))
+        input.slice.length() == 2
+        input.slice.charAt(1) == 'b' as char
+        input.consume(matchAnyExcept())
+        input.slice.toString() == ' \u00e9\u20ac'
+        input.slice.length() == 3
+    }
+
+    def "can consume a run of ASCII and multi-byte characters"() {
+        def input = stream('a\u00e9\ud83d\ude00b c')
+
+        expect:
+        input.consume({ CharStream stream -> stream.consumeRun(CharClass.anyExcept(' ' as char)) } as Production<CharStream>)
+        input.value == 'a\u00e9\ud83d\ude00b'
+        input.endColumn == 5
+    }
+
+    def "decodes supplementary character as surrogate pair"() {
+        def input = stream('a\ud83d\ude00b')
+        def production = { CharStream stream ->
+            assert stream.consume('a' as char)
+            assert stream.consume('\ud83d' as char)
+            assert stream.consume('\ude00' as char)
+            assert stream.consume('b' as char)
+        } as Production<CharStream>
+
+        expect:
+        input.consume(production)
+        input.value == 'a\ud83d\ude00b'
+    }
+
+    def "can rewind to the low surrogate of a supplementary character"() {
+        def input = stream('\ud83d\ude00b')
+        def production = { CharStream stream ->
+            assert stream.consume('\ud83d' as char)
+            stream.start()
+            assert stream.consume('\ude00' as char)
+            stream.rollback()
+            assert stream.consume('\ude00' as char)
+            assert stream.consume('b' as char)
+        } as Production<CharStream>
+
+        expect:
+        input.consume(production)
+        input.value == '\ud83d\ude00b'
+    }
+
+    def "replaces each byte of a malformed sequence"() {
+        def input = new Utf8CharStream(ByteBuffer.wrap([0x61, 0xe2, 0x82, 0x62, 0x80, 0xf0, 0x9f] as byte[]))
+
+        expect:
+        input.consume(matchAnyExcept())
+        input.value == 'a\ufffd\ufffdb\ufffd\ufffd\ufffd'
+    }
+
+    def "replaces a lead byte above 0xF4"() {
+        def input = new Utf8CharStream(ByteBuffer.wrap([0xf8, 0x90, 0x80, 0x80, 0xf5, 0x80, 0x80, 0x80, 0x61] as byte[]))
+
+        expect:
+        input.consume(matchAnyExcept())
+        input.value == '\ufffd' * 8 + 'a'
+    }
+
+    def "tracks lines and columns"() {
+        def input = stream('\u00e9b\r\nc\u20ac\nd')
+
+        expect:
+        input.consume(matchAnyExcept('d'))
+        input.value == '\u00e9b\r\nc\u20ac\n'
+        input.startLine == 1
+        input.endLine == 3
+        input.endColumn == 0
+    }
+
+    def "columns count characters rather than bytes"() {
+        def input = stream('\u00e9\u20ac\ud83d\ude00ab')
+
+        expect:
+        input.consume(matchAnyExcept('b'))
+        input.consume(matchAnyExcept())
+        input.startLine == 1
+        input.startColumn == 6
+        input.endColumn == 6
+    }
+
+    def "reads small file into the heap"() {
+        def file = tmpDir.newFile("input.txt")
+        file.setText('ab\u00e9', 'utf-8')
+        def content = Utf8CharStream.read(file)
+        def input = new Utf8CharStream(content)
+
+        expect:
+        !(content instanceof MappedByteBuffer)
+        input.consume(matchAnyExcept())
+        input.value == 'ab\u00e9'
+    }
+
+    def "scans memory-mapped file"() {
+        def file = tmpDir.newFile("input.txt")
+        file.setText('ab\u00e9', 'utf-8')
+        def content = Utf8CharStream.read(file, 0)
+        def input = new Utf8CharStream(content)
+
+        expect:
+        content instanceof MappedByteBuffer
+        input.consume(matchAnyExcept())
+        input.value == 'ab\u00e9'
+
+        cleanup:
+        Utf8CharStream.release(content)
+    }
+
+    def "file can be replaced once its mapping has been released"() {
+        def file = tmpDir.newFile("input.txt")
+        file.setText('abc', 'utf-8')
+        def content = Utf8CharStream.read(file, 0)
+
+        when:
+        Utf8CharStream.release(content)
+        file.setText('changed', 'utf-8')
+
+        then:
+        file.getText('utf-8') == 'changed'
+    }
+
+    def matchAnyExcept(String chars = '') {
+        return { CharStream stream ->
+            while (stream.consumeAnyExcept(chars.toCharArray())) {
+            }
+        } as Production<CharStream>
+    }
+
+    def stream(String value) {
+        return new Utf8CharStream(ByteBuffer.wrap(value.getBytes('utf-8')))
+    }
+}
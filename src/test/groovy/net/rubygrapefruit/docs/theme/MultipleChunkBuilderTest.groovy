@@ -155,4 +155,11 @@ class MultipleChunkBuilderTest extends Specification {
         doc.contents[2].id == 'page3'
         doc.contents[2].contents == [para2, unknown2]
     }
+
+    def "builders are equal when they produce the same structure"() {
+        expect:
+        builder == new MultipleChunkBuilder()
+        builder.hashCode() == new MultipleChunkBuilder().hashCode()
+        builder != new SingleChunkBuilder()
+    }
 }
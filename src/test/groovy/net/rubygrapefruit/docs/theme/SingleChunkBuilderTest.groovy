@@ -149,4 +149,11 @@ class SingleChunkBuilderTest extends Specification {
         doc.contents.size() == 1
         doc.contents[0].contents == [unknown1, unknown2, chapter, unknown3, unknown4]
     }
+
+    def "builders are equal when they produce the same structure"() {
+        expect:
+        builder == new SingleChunkBuilder()
+        builder.hashCode() == new SingleChunkBuilder().hashCode()
+        builder != new MultipleChunkBuilder()
+    }
 }